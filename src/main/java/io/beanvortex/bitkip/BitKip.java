@@ -5,7 +5,9 @@ import io.beanvortex.bitkip.api.SingleService;
 import io.beanvortex.bitkip.api.SyncService;
 import io.beanvortex.bitkip.repo.QueuesRepo;
 import io.beanvortex.bitkip.repo.ScheduleRepo;
+import io.beanvortex.bitkip.task.RetryPolicy;
 import io.beanvortex.bitkip.task.ScheduleTask;
+import io.beanvortex.bitkip.utils.AppExecutors;
 import io.beanvortex.bitkip.utils.FxUtils;
 import io.beanvortex.bitkip.utils.IOUtils;
 import io.beanvortex.bitkip.utils.MoreUtils;
@@ -27,7 +29,6 @@ import org.controlsfx.control.Notifications;
 import java.awt.*;
 import java.awt.event.ActionListener;
 import java.net.URL;
-import java.util.ArrayList;
 
 import static io.beanvortex.bitkip.config.AppConfigs.*;
 import static io.beanvortex.bitkip.controllers.SettingsController.*;
@@ -108,16 +109,16 @@ public class BitKip extends Application {
 
     @Override
     public void stop() {
-        var notObservedDms = new ArrayList<>(currentDownloadings);
+        var notObservedDms = currentDownloadings.values();
         notObservedDms.forEach(dm -> dm.getDownloadTask().pause());
         startedQueues.clear();
         currentSchedules.values().forEach(sm -> {
             var startScheduler = sm.getStartScheduler();
             var stopScheduler = sm.getStopScheduler();
             if (startScheduler != null)
-                startScheduler.shutdownNow();
+                startScheduler.cancel();
             if (stopScheduler != null)
-                stopScheduler.shutdownNow();
+                stopScheduler.cancel();
         });
         try {
             if (server != null)
@@ -125,6 +126,8 @@ public class BitKip extends Application {
         } catch (Exception e) {
             log.error(e.getMessage());
         }
+        AppExecutors.logStats();
+        RetryPolicy.logStats();
         System.exit(0);
     }
 
@@ -5,6 +5,7 @@ import io.beanvortex.bitkip.models.QueueModel;
 import io.beanvortex.bitkip.models.ScheduleModel;
 import io.beanvortex.bitkip.models.StartedQueue;
 import io.beanvortex.bitkip.utils.MainTableUtils;
+import io.beanvortex.bitkip.utils.Registry;
 import io.beanvortex.bitkip.controllers.DetailsController;
 import javafx.application.HostServices;
 import org.slf4j.Logger;
@@ -61,6 +62,20 @@ public class AppConfigs {
     public static boolean addSameDownload  = defaultAddSameDownload;
     public static final boolean defaultLessCpuIntensive = false;
     public static boolean lessCpuIntensive = defaultLessCpuIntensive;
+    public static final boolean defaultPreallocateFile = true;
+    public static boolean preallocateFile = defaultPreallocateFile;
+    public static final boolean defaultHttpClientEngine = false;
+    public static boolean httpClientEngine = defaultHttpClientEngine;
+    public static final long defaultGlobalSpeedLimit = 0;
+    public static long globalSpeedLimit = defaultGlobalSpeedLimit;
+    public static final int defaultTableUpdateInterval = 250;
+    public static int tableUpdateInterval = defaultTableUpdateInterval;
+    public static final int defaultMaxConnectionsPerHost = 16;
+    public static int maxConnectionsPerHost = defaultMaxConnectionsPerHost;
+    public static final int defaultMaxConnections = 128;
+    public static int maxConnections = defaultMaxConnections;
+    public static final int defaultMaxActiveDownloads = 8;
+    public static int maxActiveDownloads = defaultMaxActiveDownloads;
     public static String lastSavedDir = null;
 
 
@@ -99,9 +114,13 @@ public class AppConfigs {
     }
 
 
-    public static final List<DownloadModel> currentDownloadings = new ArrayList<>();
-    public static final List<StartedQueue> startedQueues = new ArrayList<>();
-    public static final List<DetailsController> openDownloadings = new ArrayList<>();
+    // integer represents downloadModelId
+    public static final Registry<Integer, DownloadModel> currentDownloadings = new Registry<>(DownloadModel::getId);
+    // integer represents queueModelId
+    public static final Registry<Integer, StartedQueue> startedQueues = new Registry<>(sq -> sq.queue().getId());
+    // integer represents downloadModelId of the opened details window
+    public static final Registry<Integer, DetailsController> openDownloadings =
+            new Registry<>(dc -> dc.getDownloadModel().getId());
     // integer represents scheduleModelId
     public static final Map<Integer, ScheduleModel> currentSchedules = new HashMap<>();
 
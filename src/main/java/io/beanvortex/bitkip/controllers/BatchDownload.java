@@ -122,8 +122,7 @@ public class BatchDownload implements QueueObserver {
             var links = generateLinks(url, start, end, Integer.parseInt(chunksField.getText()), true);
             var link = links.get(0);
             tempLink = link;
-            var connection = DownloadUtils.connect(link.getUri());
-            var fileNameLocationFuture = CompletableFuture.supplyAsync(() -> DownloadUtils.extractFileName(link.getUri(), connection))
+            var fileNameLocationFuture = CompletableFuture.supplyAsync(() -> DownloadUtils.probeOrGuess(link.getUri()).fileName())
                     .thenAccept(this::setLocation);
             fileNameLocationFuture
                     .whenComplete((unused, throwable) ->
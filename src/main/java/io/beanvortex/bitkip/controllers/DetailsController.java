@@ -13,6 +13,7 @@ import io.beanvortex.bitkip.task.DownloadTask;
 import io.beanvortex.bitkip.utils.DownloadOpUtils;
 import io.beanvortex.bitkip.utils.FxUtils;
 import io.beanvortex.bitkip.utils.IOUtils;
+import io.beanvortex.bitkip.utils.QueueUtils;
 import io.beanvortex.bitkip.utils.Validations;
 import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
@@ -35,6 +36,7 @@ import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.ResourceBundle;
 
 public class DetailsController implements FXMLController {
@@ -44,6 +46,10 @@ public class DetailsController implements FXMLController {
     @FXML
     private ComboBox<TurnOffMode> turnOffCombo;
     @FXML
+    private Spinner<Integer> prioritySpinner;
+    @FXML
+    private DatePicker deadlinePicker;
+    @FXML
     private Hyperlink link;
     @FXML
     private TextField bytesField, speedField;
@@ -117,7 +123,10 @@ public class DetailsController implements FXMLController {
         downloadedOfLbl.setText(downloadOf);
         progressLbl.setText("Progress: %.2f%%".formatted(dm.getProgress()));
         downloadProgress.setProgress(dm.getProgress() / 100);
-        chunksLbl.setText("Chunks: " + dm.getChunks());
+        if (dm.getConnections() > 0)
+            chunksLbl.setText("Chunks: %d (using %d connections)".formatted(dm.getChunks(), dm.getConnections()));
+        else
+            chunksLbl.setText("Chunks: " + dm.getChunks());
         var resumable = dm.isResumable();
         if (resumable) {
             resumableLbl.getStyleClass().add("yes");
@@ -135,6 +144,8 @@ public class DetailsController implements FXMLController {
         drag.setVisible(false);
         onComplete(dm);
         turnOffCombo.getSelectionModel().select(dm.getTurnOffMode());
+        prioritySpinner.getValueFactory().setValue(dm.getPriority());
+        deadlinePicker.setValue(dm.getDeadline());
     }
 
     public void initDownloadListeners() {
@@ -148,10 +159,8 @@ public class DetailsController implements FXMLController {
     }
 
     private DownloadTask getDownloadTask() {
-        return AppConfigs.currentDownloadings.stream()
-                .filter(dm -> dm.equals(this.dm))
-                .findFirst()
-                .map(DownloadModel::getDownloadTask).orElse(null);
+        var registered = AppConfigs.currentDownloadings.find(dm);
+        return registered == null ? null : registered.getDownloadTask();
     }
 
     private void bytesDownloadedListener(DownloadTask dt) {
@@ -226,6 +235,14 @@ public class DetailsController implements FXMLController {
         linkPopover.setContentNode(new Label("Copied"));
         link.setOnMouseExited(event -> linkPopover.hide());
         turnOffCombo.setItems(FXCollections.observableArrayList(TurnOffMode.NOTHING, TurnOffMode.SLEEP, TurnOffMode.TURN_OFF));
+        prioritySpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(-10, 10, 0));
+        prioritySpinner.valueProperty().addListener((o, old, newVal) -> {
+            if (newVal == null || newVal == dm.getPriority())
+                return;
+            dm.setPriority(newVal);
+            DownloadsRepo.updateDownloadPriority(dm);
+            QueueUtils.reorderInStartedQueues(dm);
+        });
         speedApplyBtn.setGraphic(new FontIcon());
         speedApplyBtn.setVisible(false);
         speedApplyBtn.setDisable(true);
@@ -380,6 +397,16 @@ public class DetailsController implements FXMLController {
         }
     }
 
+    @FXML
+    private void onDeadlineChanged() {
+        var deadline = deadlinePicker.getValue();
+        if (Objects.equals(deadline, dm.getDeadline()))
+            return;
+        dm.setDeadline(deadline);
+        DownloadsRepo.updateDownloadDeadline(dm);
+        QueueUtils.reorderInStartedQueues(dm);
+    }
+
     @FXML
     private void onSpeedApplied() {
         var dmTask = dm.getDownloadTask();
@@ -1,12 +1,15 @@
 package io.beanvortex.bitkip.controllers;
 
+import io.beanvortex.bitkip.utils.BandwidthLimiter;
 import io.beanvortex.bitkip.utils.FxUtils;
 import io.beanvortex.bitkip.utils.IOUtils;
 import io.beanvortex.bitkip.config.observers.QueueObserver;
 import io.beanvortex.bitkip.config.observers.QueueSubject;
 import io.beanvortex.bitkip.controllers.interfaces.FXMLController;
 import io.beanvortex.bitkip.models.QueueModel;
+import io.beanvortex.bitkip.models.QueuePolicy;
 import io.beanvortex.bitkip.models.ScheduleModel;
+import io.beanvortex.bitkip.models.SpeedProfile;
 import io.beanvortex.bitkip.models.StartedQueue;
 import io.beanvortex.bitkip.models.TurnOffMode;
 import io.beanvortex.bitkip.repo.DatabaseHelper;
@@ -52,10 +55,12 @@ public class QueueSetting implements FXMLController, QueueObserver {
     @FXML
     private Label selectedQueueLbl, windowsPowerLbl, savedLabel;
     @FXML
-    private TextField speedField;
+    private TextField speedField, speedProfileField;
     @FXML
     private ComboBox<TurnOffMode> powerCombo;
     @FXML
+    private ComboBox<QueuePolicy> policyCombo;
+    @FXML
     private Spinner<Integer> simulDownloadSpinner, stopHourSpinner, stopMinuteSpinner, stopSecondSpinner,
             startHourSpinner, startMinuteSpinner, startSecondSpinner;
     @FXML
@@ -87,6 +92,7 @@ public class QueueSetting implements FXMLController, QueueObserver {
         initInputs();
         initRadios();
         initPowerCombo();
+        policyCombo.setItems(FXCollections.observableArrayList(QueuePolicy.values()));
     }
 
     private void initPowerCombo() {
@@ -204,6 +210,7 @@ public class QueueSetting implements FXMLController, QueueObserver {
                 hasFolderCheck.setSelected(false);
         }
         downloadOrderCheck.setSelected(selectedQueue.get().isDownloadFromTop());
+        policyCombo.getSelectionModel().select(selectedQueue.get().getPolicy());
         stage.setTitle("Queue Setting: %s".formatted(selectedQueue.get().getName()));
         selectedQueueLbl.setText("Queue: " + selectedQueue.get().getName());
         queueList.getSelectionModel().select(selectedQueue.get());
@@ -246,6 +253,7 @@ public class QueueSetting implements FXMLController, QueueObserver {
             stopMinuteSpinner.getValueFactory().setValue(stopTime.getMinute());
             stopSecondSpinner.getValueFactory().setValue(stopTime.getSecond());
         }
+        speedProfileField.setText(schedule.getSpeedProfile() == null ? "" : schedule.getSpeedProfile().toString());
         whenDoneCheck.setSelected(schedule.isTurnOffEnabled());
         powerCombo.setDisable(!whenDoneCheck.isSelected());
         if (schedule.getTurnOffMode() != null)
@@ -351,6 +359,7 @@ public class QueueSetting implements FXMLController, QueueObserver {
             var stopTime = LocalTime.of(stopHourSpinner.getValue(),
                     stopMinuteSpinner.getValue(), stopSecondSpinner.getValue());
             schedule.setStopTime(stopTime);
+            schedule.setSpeedProfile(SpeedProfile.parse(speedProfileField.getText()));
             schedule.setTurnOffEnabled(whenDoneCheck.isSelected());
             schedule.setTurnOffMode(powerCombo.getValue());
             if (schedule.isEnabled() && schedule.isTurnOffEnabled() && (isLinux() || isMac()) && userPassword == null) {
@@ -377,10 +386,12 @@ public class QueueSetting implements FXMLController, QueueObserver {
             }
             queue.setHasFolder(hasFolderCheck.isSelected());
             queue.setDownloadFromTop(downloadOrderCheck.isSelected());
+            queue.setPolicy(policyCombo.getValue());
             queue.setSchedule(schedule);
-            String[] qCols = {COL_SPEED_LIMIT, COL_SIMUL_DOWNLOAD, COL_HAS_FOLDER, COL_DOWN_TOP};
+            String[] qCols = {COL_SPEED_LIMIT, COL_SIMUL_DOWNLOAD, COL_HAS_FOLDER, COL_DOWN_TOP, COL_POLICY};
             String[] qValues = {queue.getSpeed(), String.valueOf(queue.getSimultaneouslyDownload()),
-                    String.valueOf(queue.hasFolder() ? 1 : 0), String.valueOf(queue.isDownloadFromTop() ? 1 : 0)};
+                    String.valueOf(queue.hasFolder() ? 1 : 0), String.valueOf(queue.isDownloadFromTop() ? 1 : 0),
+                    queue.getPolicy().name()};
             DatabaseHelper.updateCols(qCols, qValues, QUEUES_TABLE_NAME, queue.getId());
             IOUtils.createOrDeleteFolderForQueue(queue);
             ScheduleRepo.updateSchedule(schedule);
@@ -391,6 +402,7 @@ public class QueueSetting implements FXMLController, QueueObserver {
             queueList.getSelectionModel().select(queue);
 
             ScheduleTask.schedule(queue);
+            BandwidthLimiter.updateQueueRate(queue);
             showResultMessage("Successfully Saved", SaveStatus.SUCCESS);
             log.info("Updated queue : " + queue.toStringModel());
         } catch (IllegalArgumentException e) {
@@ -10,6 +10,9 @@ import io.beanvortex.bitkip.controllers.interfaces.FXMLController;
 import io.beanvortex.bitkip.exceptions.DeniedException;
 import io.beanvortex.bitkip.models.QueueModel;
 import io.beanvortex.bitkip.task.FileMoveTask;
+import io.beanvortex.bitkip.utils.BandwidthLimiter;
+import io.beanvortex.bitkip.utils.ConnectionGovernor;
+import io.beanvortex.bitkip.utils.DownloadAdmission;
 import io.beanvortex.bitkip.utils.FxUtils;
 import io.beanvortex.bitkip.utils.IOUtils;
 import io.beanvortex.bitkip.utils.Validations;
@@ -42,7 +45,7 @@ public class SettingsController implements FXMLController {
 
     @FXML
     private CheckBox immediateCheck, startupCheck, triggerOffCheck, agentCheck, addDownCheck,
-            continueCheck, completeDialogCheck, serverCheck, lessCpuCheck;
+            continueCheck, completeDialogCheck, serverCheck, lessCpuCheck, preallocateCheck, httpClientCheck;
     @FXML
     private VBox root, actionArea, queueContainer;
     @FXML
@@ -50,7 +53,8 @@ public class SettingsController implements FXMLController {
     @FXML
     private Label agentDesc, lblLocation, savedLabel;
     @FXML
-    private TextField agentField, connectionField, readField, rateLimitField, retryField, portField;
+    private TextField agentField, connectionField, readField, rateLimitField, retryField, portField, globalSpeedField, tableIntervalField,
+            hostConnectionsField, maxConnectionsField, activeDownloadsField;
 
 
     private Stage stage;
@@ -97,6 +101,11 @@ public class SettingsController implements FXMLController {
         Validations.validateIntInputCheck(rateLimitField, (long) AppConfigs.downloadRateLimitCount, 1, null);
         Validations.validateIntInputCheck(connectionField, (long) AppConfigs.connectionTimeout, 0, null);
         Validations.validateIntInputCheck(readField, (long) AppConfigs.readTimeout, 0, null);
+        Validations.validateSpeedInput(globalSpeedField);
+        Validations.validateIntInputCheck(tableIntervalField, (long) AppConfigs.tableUpdateInterval, 0, null);
+        Validations.validateIntInputCheck(hostConnectionsField, (long) AppConfigs.maxConnectionsPerHost, 0, null);
+        Validations.validateIntInputCheck(maxConnectionsField, (long) AppConfigs.maxConnections, 0, null);
+        Validations.validateIntInputCheck(activeDownloadsField, (long) AppConfigs.maxActiveDownloads, 0, null);
         agentDesc.setText("Note: If you enter wrong agent, your downloads may not start. Your agent will update when you use extension");
         initElements();
     }
@@ -109,6 +118,8 @@ public class SettingsController implements FXMLController {
         immediateCheck.setSelected(AppConfigs.downloadImmediately);
         addDownCheck.setSelected(AppConfigs.addSameDownload);
         lessCpuCheck.setSelected(AppConfigs.lessCpuIntensive);
+        preallocateCheck.setSelected(AppConfigs.preallocateFile);
+        httpClientCheck.setSelected(AppConfigs.httpClientEngine);
         portField.setText(String.valueOf(AppConfigs.serverPort));
         retryField.setText(String.valueOf(AppConfigs.downloadRetryCount));
         rateLimitField.setText(String.valueOf(AppConfigs.downloadRateLimitCount));
@@ -121,6 +132,11 @@ public class SettingsController implements FXMLController {
         agentField.setDisable(!AppConfigs.userAgentEnabled);
         connectionField.setText(String.valueOf(AppConfigs.connectionTimeout));
         readField.setText(String.valueOf(AppConfigs.readTimeout));
+        globalSpeedField.setText(String.valueOf(IOUtils.getMbOfBytes(AppConfigs.globalSpeedLimit)));
+        tableIntervalField.setText(String.valueOf(AppConfigs.tableUpdateInterval));
+        hostConnectionsField.setText(String.valueOf(AppConfigs.maxConnectionsPerHost));
+        maxConnectionsField.setText(String.valueOf(AppConfigs.maxConnections));
+        activeDownloadsField.setText(String.valueOf(AppConfigs.maxActiveDownloads));
     }
 
     private void initQueues() {
@@ -213,6 +229,14 @@ public class SettingsController implements FXMLController {
         AppConfigs.readTimeout = Integer.parseInt(readField.getText());
         AppConfigs.connectionTimeout = Integer.parseInt(connectionField.getText());
         AppConfigs.userAgent = agentField.getText();
+        AppConfigs.globalSpeedLimit = IOUtils.getBytesFromString(globalSpeedField.getText());
+        BandwidthLimiter.setGlobalRate(AppConfigs.globalSpeedLimit);
+        AppConfigs.tableUpdateInterval = Integer.parseInt(tableIntervalField.getText());
+        AppConfigs.maxConnectionsPerHost = Integer.parseInt(hostConnectionsField.getText());
+        AppConfigs.maxConnections = Integer.parseInt(maxConnectionsField.getText());
+        AppConfigs.maxActiveDownloads = Integer.parseInt(activeDownloadsField.getText());
+        ConnectionGovernor.onLimitsChanged();
+        DownloadAdmission.onLimitsChanged();
         IOUtils.saveConfigs();
         showSavedMessage();
     }
@@ -257,6 +281,16 @@ public class SettingsController implements FXMLController {
         AppConfigs.connectionTimeout = AppConfigs.defaultConnectionTimeout;
         AppConfigs.readTimeout = AppConfigs.defaultReadTimeout;
         AppConfigs.lessCpuIntensive = AppConfigs.defaultLessCpuIntensive;
+        AppConfigs.preallocateFile = AppConfigs.defaultPreallocateFile;
+        AppConfigs.httpClientEngine = AppConfigs.defaultHttpClientEngine;
+        AppConfigs.globalSpeedLimit = AppConfigs.defaultGlobalSpeedLimit;
+        AppConfigs.tableUpdateInterval = AppConfigs.defaultTableUpdateInterval;
+        AppConfigs.maxConnectionsPerHost = AppConfigs.defaultMaxConnectionsPerHost;
+        AppConfigs.maxConnections = AppConfigs.defaultMaxConnections;
+        AppConfigs.maxActiveDownloads = AppConfigs.defaultMaxActiveDownloads;
+        ConnectionGovernor.onLimitsChanged();
+        DownloadAdmission.onLimitsChanged();
+        BandwidthLimiter.setGlobalRate(AppConfigs.globalSpeedLimit);
         IOUtils.saveConfigs();
         initElements();
         showSavedMessage();
@@ -293,6 +327,18 @@ public class SettingsController implements FXMLController {
         IOUtils.saveConfigs();
     }
 
+    @FXML
+    private void onPreallocateCheck() {
+        AppConfigs.preallocateFile = preallocateCheck.isSelected();
+        IOUtils.saveConfigs();
+    }
+
+    @FXML
+    private void onHttpClientCheck() {
+        AppConfigs.httpClientEngine = httpClientCheck.isSelected();
+        IOUtils.saveConfigs();
+    }
+
     @FXML
     private void onStartupCheck() {
         AppConfigs.startup = startupCheck.isSelected();
@@ -32,7 +32,7 @@ public class SingleDownload implements QueueObserver {
     private Button questionBtnSpeed, openLocation, questionBtnChunks,
             questionBtnBytes, downloadBtn, refreshBtn, addBtn, newQueue;
     @FXML
-    private TextField urlField, chunksField, nameField, locationField, speedField, bytesField;
+    private TextField urlField, chunksField, nameField, locationField, speedField, bytesField, checksumField, mirrorsField;
     @FXML
     private ComboBox<QueueModel> queueCombo;
 
@@ -80,6 +80,7 @@ public class SingleDownload implements QueueObserver {
         refreshBtn.setOnAction(e -> {
             refreshBtn.setDisable(true);
             refreshBtn.setVisible(false);
+            UrlProbeCache.SHARED.invalidate(urlField.getText());
             autoFillLocationAndSizeAndName();
         });
         var questionBtns = new Button[]{questionBtnSpeed, questionBtnBytes, questionBtnChunks};
@@ -116,6 +117,14 @@ public class SingleDownload implements QueueObserver {
                 DownloadUtils.disableControlsAndShowError("Location is blank", errorLabel, downloadBtn, addBtn, refreshBtn);
             else onOfflineFieldsChanged();
         });
+        checksumField.textProperty().addListener((o, ol, n) -> {
+            try {
+                HashUtils.normalize(n);
+                onOfflineFieldsChanged();
+            } catch (IllegalArgumentException e) {
+                DownloadUtils.disableControlsAndShowError(e.getMessage(), errorLabel, downloadBtn, addBtn, refreshBtn);
+            }
+        });
         autoFillLocationAndSizeAndName();
     }
 
@@ -127,13 +136,14 @@ public class SingleDownload implements QueueObserver {
             // firing select event
             queueCombo.getSelectionModel().select(queueCombo.getSelectionModel().getSelectedIndex());
             var url = urlField.getText();
-            var connection = DownloadUtils.connect(url);
+            if (url.isBlank())
+                throw new IllegalArgumentException("URL is blank");
             var executor = Executors.newVirtualThreadPerTaskExecutor();
+            // both read the same probe of url, which is sent once
             var fileNameLocationFuture =
-                    DownloadUtils.prepareFileNameAndFieldsAsync(connection, url, nameField, dm, executor)
+                    DownloadUtils.prepareFileNameAndFieldsAsync(url, nameField, dm, executor)
                             .thenAccept(this::setLocation);
-            var sizeFuture = DownloadUtils.prepareFileSizeAndFieldsAsync(connection,
-                    urlField, sizeLabel, resumableLabel, speedField, chunksField, bytesField, dm, executor);
+            var sizeFuture = DownloadUtils.prepareFileSizeAndFieldsAsync(url, sizeLabel, resumableLabel, speedField, chunksField, bytesField, dm, executor);
             CompletableFuture.allOf(fileNameLocationFuture, sizeFuture)
                     .whenComplete((unused, throwable) -> {
                         DownloadUtils.handleError(() -> DownloadUtils.checkIfFileIsOKToSave(locationField.getText(),
@@ -243,6 +253,15 @@ public class SingleDownload implements QueueObserver {
             return false;
         }
 
+        String expectedHash;
+        try {
+            expectedHash = HashUtils.normalize(checksumField.getText());
+        } catch (IllegalArgumentException e) {
+            AppConfigs.log.warn(e.getMessage());
+            DownloadUtils.disableControlsAndShowError(e.getMessage(), errorLabel, downloadBtn, addBtn, refreshBtn);
+            return false;
+        }
+
         var newFileName = DownloadUtils.getNewFileNameIfExists(fileName, path);
         fileName = AppConfigs.addSameDownload ? newFileName : fileName;
         if (!newFileName.equals(fileName)) {
@@ -268,6 +287,8 @@ public class SingleDownload implements QueueObserver {
         dm.setOpenAfterComplete(false);
         dm.setSpeedLimit(IOUtils.getBytesFromString(speedField.getText()));
         dm.setByteLimit(Long.parseLong(bytesField.getText()));
+        dm.setExpectedHash(expectedHash);
+        dm.setMirrors(DownloadUtils.parseMirrors(mirrorsField.getText(), url));
         var selectedQueue = queueCombo.getSelectionModel().getSelectedItem();
         var allDownloadsQueue = QueuesRepo.findByName(Defaults.ALL_DOWNLOADS_QUEUE, false);
         dm.getQueues().add(allDownloadsQueue);
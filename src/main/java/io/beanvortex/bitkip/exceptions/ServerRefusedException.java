@@ -0,0 +1,27 @@
+package io.beanvortex.bitkip.exceptions;
+
+import java.io.IOException;
+
+/**
+ * Thrown when server answers a request with 429 or 503, which means it does not accept more connections for now
+ */
+public class ServerRefusedException extends IOException {
+
+    private final long retryAfter;
+
+    public ServerRefusedException(String message) {
+        this(message, 0);
+    }
+
+    /**
+     * @param retryAfter milliseconds that server asked to wait by Retry-After, 0 if it did not
+     */
+    public ServerRefusedException(String message, long retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,14 @@
+package io.beanvortex.bitkip.models;
+
+/**
+ * @param end      inclusive
+ * @param checksum CRC32C of the bytes, {@link #UNKNOWN_CHECKSUM} if it is not known
+ */
+public record ByteRange(long start, long end, long checksum) {
+
+    public static final long UNKNOWN_CHECKSUM = -1;
+
+    public long length() {
+        return end - start + 1;
+    }
+}
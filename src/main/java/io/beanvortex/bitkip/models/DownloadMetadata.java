@@ -0,0 +1,14 @@
+package io.beanvortex.bitkip.models;
+
+/**
+ * Response headers of a download which are probed once and shared by all connections of it
+ *
+ * @param size         -1 if server did not send the content length
+ * @param lastModified 0 if server did not send it
+ * @param eTag         null if server did not send it
+ * @param finalUrl     url after following redirects
+ * @param hash         hash of whole file that server sent, null if it did not
+ */
+public record DownloadMetadata(long size, long lastModified, String eTag, boolean resumable, String finalUrl,
+                               String hash) {
+}
@@ -3,10 +3,15 @@ package io.beanvortex.bitkip.models;
 import io.beanvortex.bitkip.task.DownloadTask;
 import io.beanvortex.bitkip.utils.IOUtils;
 import io.beanvortex.bitkip.utils.MainTableUtils;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
 import lombok.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -22,6 +27,9 @@ public class DownloadModel {
     private long size;
     private long downloaded;
     private String uri;
+    // other urls of the same file
+    @Builder.Default
+    private List<String> mirrors = new ArrayList<>();
     private String filePath;
     private String remainingTime;
     @Builder.Default
@@ -38,6 +46,21 @@ public class DownloadModel {
     private boolean showCompleteDialog;
     private boolean resumable;
     private TurnOffMode turnOffMode;
+    // as ALGORITHM:hex, given by user or taken from response headers
+    private String expectedHash;
+    // computed while downloading
+    private String hash;
+    // probed when download starts, not persisted
+    private DownloadMetadata metadata;
+    // connections that download settled on, chunks is the most it may use
+    private int connections;
+    // used by queues with priority policy, higher ones start first
+    private int priority;
+    // used by queues with deadline policy, null means no deadline
+    private LocalDate deadline;
+    // increased by MainTableUtils when the row of this download should be redrawn
+    @Builder.Default
+    private IntegerProperty revision = new SimpleIntegerProperty();
 
     private long speedLimit;
     private long byteLimit;
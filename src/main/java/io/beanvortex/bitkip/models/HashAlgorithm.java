@@ -0,0 +1,47 @@
+package io.beanvortex.bitkip.models;
+
+import java.util.Arrays;
+
+public enum HashAlgorithm {
+    SHA_256("SHA-256", 64),
+    MD5("MD5", 32),
+    CRC32C("CRC32C", 8);
+
+    private final String label;
+    private final int hexLength;
+
+    HashAlgorithm(String label, int hexLength) {
+        this.label = label;
+        this.hexLength = hexLength;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getHexLength() {
+        return hexLength;
+    }
+
+    /**
+     * @param label name of algorithm, dashes and case are ignored, e.g. sha256, SHA-256
+     * @return null if algorithm is not supported
+     */
+    public static HashAlgorithm of(String label) {
+        var normalized = label.replace("-", "").toUpperCase();
+        return Arrays.stream(values())
+                .filter(a -> a.label.replace("-", "").equals(normalized))
+                .findFirst().orElse(null);
+    }
+
+    public static HashAlgorithm ofHexLength(int hexLength) {
+        return Arrays.stream(values())
+                .filter(a -> a.hexLength == hexLength)
+                .findFirst().orElse(null);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
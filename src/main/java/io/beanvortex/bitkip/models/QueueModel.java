@@ -18,6 +18,7 @@ public class QueueModel {
     private boolean downloadFromTop = false;
     private String speed = "0";
     private int simultaneouslyDownload = 1;
+    private QueuePolicy policy = QueuePolicy.IN_ORDER;
     private ScheduleModel schedule;
     private CopyOnWriteArrayList<DownloadModel> downloads;
 
@@ -0,0 +1,28 @@
+package io.beanvortex.bitkip.models;
+
+/**
+ * Order in which a started queue picks its next download
+ */
+public enum QueuePolicy {
+    // by the date downloads are added to the queue, or reversed when downloading from top
+    IN_ORDER("In order"),
+    // higher priority first, a running download is paused for a waiting one with higher priority
+    PRIORITY("Priority"),
+    // smaller known size first, to complete more files sooner
+    SHORTEST_FIRST("Shortest first"),
+    // one download of each host in turn
+    HOST_FAIR_SHARE("Fair share between hosts"),
+    // earlier deadline first, downloads without a deadline last
+    DEADLINE("Earliest deadline");
+
+    private final String label;
+
+    QueuePolicy(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -1,5 +1,6 @@
 package io.beanvortex.bitkip.models;
 
+import io.beanvortex.bitkip.utils.WallClockScheduler;
 import lombok.*;
 
 import java.time.DayOfWeek;
@@ -7,7 +8,6 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ScheduledExecutorService;
 
 
 @Getter
@@ -28,9 +28,11 @@ public class ScheduleModel {
     private boolean turnOffEnabled;
     private TurnOffMode turnOffMode;
     private int queueId;
+    private SpeedProfile speedProfile = SpeedProfile.EMPTY;
 
-    private ScheduledExecutorService startScheduler;
-    private ScheduledExecutorService stopScheduler;
+    // triggers of this schedule on the shared scheduler
+    private WallClockScheduler.Trigger startScheduler;
+    private WallClockScheduler.Trigger stopScheduler;
 
     @Override
     public boolean equals(Object o) {
@@ -41,12 +43,13 @@ public class ScheduleModel {
                 stopTimeEnabled == that.stopTimeEnabled && turnOffEnabled == that.turnOffEnabled &&
                 queueId == that.queueId && Objects.equals(startTime, that.startTime) &&
                 Objects.equals(startDate, that.startDate) && days.equals(that.days) &&
-                Objects.equals(stopTime, that.stopTime) && turnOffMode == that.turnOffMode;
+                Objects.equals(stopTime, that.stopTime) && turnOffMode == that.turnOffMode &&
+                Objects.equals(speedProfile, that.speedProfile);
     }
 
     @Override
     public int hashCode() {
         return Objects.hash(id, enabled, startTime, onceDownload, startDate, days,
-                stopTimeEnabled, stopTime, turnOffEnabled, turnOffMode, queueId);
+                stopTimeEnabled, stopTime, turnOffEnabled, turnOffMode, queueId, speedProfile);
     }
 }
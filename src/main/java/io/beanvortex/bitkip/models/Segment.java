@@ -0,0 +1,130 @@
+package io.beanvortex.bitkip.models;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+/**
+ * A byte range of a download which is fetched by one connection.
+ * end of a segment may shrink while it is downloading, when an idle connection takes over the second half of it
+ */
+public class Segment {
+
+    private final Path file;
+    private final long fileOffset;
+    private final long start;
+    private volatile long position;
+    private volatile long end;
+    private final CRC32C checksum = new CRC32C();
+    // bytes skipped by advance(long) are not in the checksum
+    private boolean checksumValid = true;
+
+    /**
+     * @param file       file that bytes of this segment are written into
+     * @param fileOffset absolute offset of the download that the file begins at
+     * @param start      absolute offset of the first byte that this segment is responsible for
+     * @param end        absolute offset of the last byte, inclusive
+     */
+    public Segment(Path file, long fileOffset, long start, long end) {
+        this.file = file;
+        this.fileOffset = fileOffset;
+        this.start = start;
+        this.position = start;
+        this.end = end;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getFileOffset() {
+        return fileOffset;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * @return position of the next byte inside the file of this segment
+     */
+    public long getFilePosition() {
+        return position - fileOffset;
+    }
+
+    public synchronized long remaining() {
+        return Math.max(end - position + 1, 0);
+    }
+
+    public boolean isDone() {
+        return position > end;
+    }
+
+    public synchronized void advance(long bytes) {
+        position += bytes;
+        checksumValid = false;
+    }
+
+    /**
+     * Moves position past the written bytes and adds them to the checksum of the segment
+     */
+    public synchronized void advance(ByteBuffer written) {
+        var bytes = written.remaining();
+        checksum.update(written);
+        position += bytes;
+    }
+
+    /**
+     * @return bytes written from the start of this segment until now, or null if nothing is written
+     */
+    public synchronized ByteRange getWrittenRange() {
+        if (position == start)
+            return null;
+        return new ByteRange(start, position - 1, checksumValid ? checksum.getValue() : ByteRange.UNKNOWN_CHECKSUM);
+    }
+
+    /**
+     * Gives away the second half of the remaining bytes.
+     * minSize should be greater than a single read of a connection, so the owner never writes past the new end
+     *
+     * @return a new segment starting right after the new end of this one, or null if it is too small to split
+     */
+    public synchronized Segment split(long minSize) {
+        var half = remaining() / 2;
+        if (half < minSize)
+            return null;
+        return splitAt(end - half + 1);
+    }
+
+    /**
+     * Gives away the bytes from mid to the end.
+     * mid should be at least a single read of a connection past position, so the owner never writes past the new end
+     *
+     * @return a new segment starting at mid, or null if mid is not inside the remaining bytes
+     */
+    public synchronized Segment splitAt(long mid) {
+        if (mid <= position || mid > end)
+            return null;
+        var stolen = new Segment(file, fileOffset, mid, end);
+        end = mid - 1;
+        return stolen;
+    }
+
+    @Override
+    public String toString() {
+        return "Segment{" +
+                "file=" + file.getFileName() +
+                ", start=" + start +
+                ", position=" + position +
+                ", end=" + end +
+                '}';
+    }
+}
@@ -0,0 +1,83 @@
+package io.beanvortex.bitkip.models;
+
+import io.beanvortex.bitkip.utils.IOUtils;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Speed limits of a queue by time of day, such as "09:00=2, 18:00=0" for 2 MB/s during the day and
+ * no limit at night. Each speed lasts until the next time, the last one lasts until the first one of next day
+ */
+public record SpeedProfile(List<Period> periods) {
+
+    /**
+     * @param speed in MB, 0 means no limit
+     */
+    public record Period(LocalTime from, String speed) {
+        @Override
+        public String toString() {
+            return from + "=" + speed;
+        }
+    }
+
+    public static final SpeedProfile EMPTY = new SpeedProfile(List.of());
+
+    public SpeedProfile {
+        periods = periods.stream().sorted(Comparator.comparing(Period::from)).toList();
+    }
+
+    /**
+     * @throws IllegalArgumentException if a period is not like 09:00=2
+     */
+    public static SpeedProfile parse(String text) {
+        if (text == null || text.isBlank())
+            return EMPTY;
+        var periods = new ArrayList<Period>();
+        for (var part : text.split("[,;]")) {
+            if (part.isBlank())
+                continue;
+            var pair = part.split("=");
+            try {
+                if (pair.length != 2)
+                    throw new IllegalArgumentException();
+                var speed = pair[1].trim();
+                if (Double.parseDouble(speed) < 0)
+                    throw new IllegalArgumentException();
+                var from = LocalTime.parse(pair[0].trim());
+                if (periods.stream().anyMatch(p -> p.from().equals(from)))
+                    throw new IllegalArgumentException();
+                periods.add(new Period(from, speed));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new IllegalArgumentException("Speed profile should be like 09:00=2, 18:00=0 : " + part.trim());
+            }
+        }
+        return new SpeedProfile(periods);
+    }
+
+    public boolean isEmpty() {
+        return periods.isEmpty();
+    }
+
+    /**
+     * @return speed limit in bytes at the given time, or -1 if there are no periods
+     */
+    public long rateAt(LocalTime time) {
+        if (periods.isEmpty())
+            return -1;
+        var current = periods.get(periods.size() - 1);
+        for (var period : periods)
+            if (!period.from().isAfter(time))
+                current = period;
+        return IOUtils.getBytesFromString(current.speed());
+    }
+
+    @Override
+    public String toString() {
+        return periods.stream().map(Period::toString).collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,9 @@
+package io.beanvortex.bitkip.models;
+
+/**
+ * What is known about a url from response headers, without downloading it
+ *
+ * @param fileName from Content-Disposition, or the last part of url
+ */
+public record UrlProbe(DownloadMetadata metadata, String fileName) {
+}
@@ -8,6 +8,7 @@ import io.beanvortex.bitkip.utils.Defaults;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -35,6 +36,11 @@ public class DownloadsRepo {
             COL_COMPLETE_DATE = "complete_date",
             COL_RESUMABLE = "resumable",
             COL_TURNOFF_MODE = "turnoff_mode",
+            COL_EXPECTED_HASH = "expected_hash",
+            COL_HASH = "hash",
+            COL_MIRRORS = "mirrors",
+            COL_PRIORITY = "priority",
+            COL_DEADLINE = "deadline",
             COL_PATH = "path";
 
     public static void createTable() {
@@ -54,7 +60,12 @@ public class DownloadsRepo {
                 + COL_ADD_DATE + " VARCHAR,"
                 + COL_ADD_TO_QUEUE_DATE + " VARCHAR,"
                 + COL_LAST_TRY_DATE + " VARCHAR,"
-                + COL_COMPLETE_DATE + " VARCHAR"
+                + COL_COMPLETE_DATE + " VARCHAR,"
+                + COL_EXPECTED_HASH + " VARCHAR,"
+                + COL_HASH + " VARCHAR,"
+                + COL_MIRRORS + " VARCHAR,"
+                + COL_PRIORITY + " INTEGER DEFAULT 0,"
+                + COL_DEADLINE + " VARCHAR"
                 + ");";
         DatabaseHelper.runSQL(sql, false);
         alters();
@@ -77,6 +88,13 @@ public class DownloadsRepo {
                         DatabaseHelper.DOWNLOADS_TABLE_NAME, COL_ADD_TO_QUEUE_DATE, LocalDateTime.now().toString(),
                         DatabaseHelper.DOWNLOADS_TABLE_NAME, COL_RESUMABLE);
         DatabaseHelper.runSQL(addAlters, true);
+        for (var column : new String[]{COL_EXPECTED_HASH, COL_HASH, COL_MIRRORS})
+            DatabaseHelper.runSQL("ALTER TABLE %s ADD COLUMN %s VARCHAR;"
+                    .formatted(DatabaseHelper.DOWNLOADS_TABLE_NAME, column), true);
+        DatabaseHelper.runSQL("ALTER TABLE %s ADD COLUMN %s INTEGER DEFAULT 0;"
+                .formatted(DatabaseHelper.DOWNLOADS_TABLE_NAME, COL_PRIORITY), true);
+        DatabaseHelper.runSQL("ALTER TABLE %s ADD COLUMN %s VARCHAR;"
+                .formatted(DatabaseHelper.DOWNLOADS_TABLE_NAME, COL_DEADLINE), true);
     }
 
 
@@ -88,14 +106,17 @@ public class DownloadsRepo {
         var showDialog = dm.isShowCompleteDialog() ? 1 : 0;
         var openFile = dm.isOpenAfterComplete() ? 1 : 0;
         var resumable = dm.isResumable() ? 1 : 0;
+        var expectedHash = dm.getExpectedHash() == null ? "NULL" : "\"" + dm.getExpectedHash() + "\"";
+        var mirrors = dm.getMirrors().isEmpty() ? "NULL" : "\"" + String.join(" ", dm.getMirrors()) + "\"";
 
         var downloadSql = """
-                INSERT INTO %s (%s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s)
-                VALUES ("%s", %f, %d, %d, "%s", "%s", %d, "%s", "%s", "%s", %s, %d, %d, %d)
+                INSERT INTO %s (%s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s)
+                VALUES ("%s", %f, %d, %d, "%s", "%s", %d, "%s", "%s", "%s", %s, %d, %d, %d, %s, %s)
                 """.formatted(
                 DatabaseHelper.DOWNLOADS_TABLE_NAME,
                 COL_NAME, COL_PROGRESS, COL_DOWNLOADED, COL_SIZE, COL_URL, COL_PATH, COL_CHUNKS, COL_ADD_DATE, COL_TURNOFF_MODE,
                 COL_ADD_TO_QUEUE_DATE, COL_LAST_TRY_DATE, COL_SHOW_COMPLETE_DIALOG, COL_OPEN_AFTER_COMPLETE, COL_RESUMABLE,
+                COL_EXPECTED_HASH, COL_MIRRORS,
                 dm.getName(),
                 dm.getProgress(),
                 dm.getDownloaded(),
@@ -109,7 +130,9 @@ public class DownloadsRepo {
                 lastTryDate,
                 showDialog,
                 openFile,
-                resumable);
+                resumable,
+                expectedHash,
+                mirrors);
 
         try (var con = DatabaseHelper.openConnection();
              var stmt = con.createStatement()) {
@@ -290,6 +313,13 @@ public class DownloadsRepo {
         var lastTryDateStr = lastTryDate == null ? null : LocalDateTime.parse(lastTryDate);
         var completeDate = rs.getString(COL_COMPLETE_DATE);
         var completeDateStr = completeDate == null ? null : LocalDateTime.parse(completeDate);
+        var expectedHash = rs.getString(COL_EXPECTED_HASH);
+        var hash = rs.getString(COL_HASH);
+        var mirrors = rs.getString(COL_MIRRORS);
+        var mirrorList = mirrors == null ? new ArrayList<String>() : new ArrayList<>(List.of(mirrors.split(" ")));
+        var priority = rs.getInt(COL_PRIORITY);
+        var deadline = rs.getString(COL_DEADLINE);
+        var deadlineDate = deadline == null ? null : LocalDate.parse(deadline);
         var downloadStatus = progress != 100 ? DownloadStatus.Paused : DownloadStatus.Completed;
 
         var build = DownloadModel.builder()
@@ -297,6 +327,8 @@ public class DownloadsRepo {
                 .chunks(chunks).addDate(addDateStr).addToQueueDate(addToQueueDateStr).turnOffMode(turnOffMode)
                 .lastTryDate(lastTryDateStr).completeDate(completeDateStr).openAfterComplete(openAfterComplete)
                 .showCompleteDialog(showCompleteDialog).downloadStatus(downloadStatus).resumable(resumable)
+                .expectedHash(expectedHash).hash(hash).mirrors(mirrorList)
+                .priority(priority).deadline(deadlineDate)
                 .build();
 
         if (fetchQueue) {
@@ -333,6 +365,36 @@ public class DownloadsRepo {
         DatabaseHelper.runSQL(sql, false);
     }
 
+    public static void updateDownloadHash(DownloadModel dm) {
+        var sql = """
+                UPDATE %s SET %s = "%s" WHERE %s = %d;
+                """
+                .formatted(DatabaseHelper.DOWNLOADS_TABLE_NAME,
+                        COL_HASH, dm.getHash(),
+                        COL_ID, dm.getId());
+        DatabaseHelper.runSQL(sql, false);
+    }
+
+    public static void updateDownloadExpectedHash(DownloadModel dm) {
+        var sql = """
+                UPDATE %s SET %s = "%s" WHERE %s = %d;
+                """
+                .formatted(DatabaseHelper.DOWNLOADS_TABLE_NAME,
+                        COL_EXPECTED_HASH, dm.getExpectedHash(),
+                        COL_ID, dm.getId());
+        DatabaseHelper.runSQL(sql, false);
+    }
+
+    public static void updateDownloadPriority(DownloadModel dm) {
+        DatabaseHelper.updateCol(COL_PRIORITY, String.valueOf(dm.getPriority()),
+                DatabaseHelper.DOWNLOADS_TABLE_NAME, dm.getId());
+    }
+
+    public static void updateDownloadDeadline(DownloadModel dm) {
+        var deadline = dm.getDeadline() == null ? "NULL" : dm.getDeadline().toString();
+        DatabaseHelper.updateCol(COL_DEADLINE, deadline, DatabaseHelper.DOWNLOADS_TABLE_NAME, dm.getId());
+    }
+
     public static void updateDownloadLastTryDate(DownloadModel dm) {
         var sql = """
                 UPDATE %s SET %s = "%s" WHERE %s = %d;
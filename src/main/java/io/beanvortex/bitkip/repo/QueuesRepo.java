@@ -2,6 +2,7 @@ package io.beanvortex.bitkip.repo;
 
 import io.beanvortex.bitkip.models.DownloadModel;
 import io.beanvortex.bitkip.models.QueueModel;
+import io.beanvortex.bitkip.models.QueuePolicy;
 import io.beanvortex.bitkip.models.ScheduleModel;
 import io.beanvortex.bitkip.utils.Defaults;
 
@@ -24,7 +25,8 @@ public class QueuesRepo {
             COL_HAS_FOLDER = "has_folder",
             COL_SPEED_LIMIT = "speed_limit",
             COL_DOWN_TOP = "download_from_top",
-            COL_SIMUL_DOWNLOAD = "simultaneously_download";
+            COL_SIMUL_DOWNLOAD = "simultaneously_download",
+            COL_POLICY = "policy";
 
 
     public static void createTable() {
@@ -58,6 +60,7 @@ public class QueuesRepo {
                     %s INTEGER,
                     %s INTEGER,
                     %s VARCHAR,
+                    %s VARCHAR DEFAULT "IN_ORDER",
                     %s INTEGER,
                     FOREIGN KEY (%s) REFERENCES %s(%s) ON DELETE CASCADE
                 );
@@ -71,6 +74,7 @@ public class QueuesRepo {
                         COL_DOWN_TOP,
                         COL_SIMUL_DOWNLOAD,
                         COL_SPEED_LIMIT,
+                        COL_POLICY,
                         COL_SCHEDULE_ID,
                         COL_SCHEDULE_ID, SCHEDULE_TABLE_NAME, COL_ID);
         DatabaseHelper.runSQL(sql, false);
@@ -97,11 +101,11 @@ public class QueuesRepo {
 
     public static void insertQueue(QueueModel queue) {
         var sql = """
-                INSERT OR IGNORE INTO %s (%s,%s,%s,%s,%s,%s,%s,%s) VALUES("%s",%d,%d,%d,%d,%d,%s,%d);
+                INSERT OR IGNORE INTO %s (%s,%s,%s,%s,%s,%s,%s,%s,%s) VALUES("%s",%d,%d,%d,%d,%d,%s,%d,"%s");
                 """
                 .formatted(QUEUES_TABLE_NAME,
                         COL_NAME, COL_EDITABLE, COL_CAN_ADD_DOWN, COL_HAS_FOLDER, COL_SCHEDULE_ID,
-                        COL_SIMUL_DOWNLOAD, COL_SPEED_LIMIT, COL_DOWN_TOP,
+                        COL_SIMUL_DOWNLOAD, COL_SPEED_LIMIT, COL_DOWN_TOP, COL_POLICY,
                         queue.getName(),
                         queue.isEditable() ? 1 : 0,
                         queue.isCanAddDownload() ? 1 : 0,
@@ -109,7 +113,8 @@ public class QueuesRepo {
                         queue.getSchedule().getId(),
                         queue.getSimultaneouslyDownload(),
                         queue.getSpeed(),
-                        queue.isDownloadFromTop() ? 1 : 0);
+                        queue.isDownloadFromTop() ? 1 : 0,
+                        queue.getPolicy().name());
         try (var con = DatabaseHelper.openConnection();
              var stmt = con.createStatement()) {
             stmt.executeUpdate(sql);
@@ -183,6 +188,7 @@ public class QueuesRepo {
     private static void alters() {
         // NEW ALTERS SHOULD ADD ON TOP
         var addAlters = """
+                ALTER TABLE %s ADD COLUMN %s VARCHAR DEFAULT "IN_ORDER";
                 ALTER TABLE %s ADD COLUMN %s INTEGER DEFAULT 1;
                 ALTER TABLE %s ADD COLUMN %s INTEGER DEFAULT 0;
                 ALTER TABLE %s ADD COLUMN %s INTEGER DEFAULT 1;
@@ -190,6 +196,7 @@ public class QueuesRepo {
                 ALTER TABLE %s ADD COLUMN %s INTEGER DEFAULT NULL REFERENCES %s(%s) ON DELETE CASCADE;
                 """
                 .formatted(
+                        QUEUES_TABLE_NAME, COL_POLICY,
                         QUEUES_TABLE_NAME, COL_DOWN_TOP,
                         QUEUES_TABLE_NAME, COL_HAS_FOLDER,
                         QUEUES_TABLE_NAME, COL_SIMUL_DOWNLOAD,
@@ -208,6 +215,7 @@ public class QueuesRepo {
         var downloadFromTop = rs.getBoolean(COL_DOWN_TOP);
         var speedLimit = rs.getString(COL_SPEED_LIMIT);
         var simulDownloads = rs.getInt(COL_SIMUL_DOWNLOAD);
+        var policy = policyOf(rs);
         CopyOnWriteArrayList<DownloadModel> downloads = null;
         if (fetchDownloads)
             downloads = new CopyOnWriteArrayList<>(DownloadsRepo.getDownloadsByQueueName(name));
@@ -215,7 +223,7 @@ public class QueuesRepo {
         if (fetchSchedule)
             schedule = ScheduleRepo.getSchedule(id);
         return new QueueModel(id, name, editable, canAddDownload, hasFolder, downloadFromTop,
-                speedLimit, simulDownloads, schedule, downloads);
+                speedLimit, simulDownloads, policy, schedule, downloads);
     }
 
     static QueueModel createQueueModel(ResultSet rs, int queueId, String queueName,
@@ -227,6 +235,15 @@ public class QueuesRepo {
         var simulDownloads = rs.getInt(COL_SIMUL_DOWNLOAD);
         var downloadFromTop = rs.getBoolean(COL_DOWN_TOP);
         return new QueueModel(queueId, queueName, editable, canAddDownload, hasFolder, downloadFromTop,
-                speedLimit, simulDownloads, schedule, null);
+                speedLimit, simulDownloads, policyOf(rs), schedule, null);
+    }
+
+    private static QueuePolicy policyOf(ResultSet rs) throws SQLException {
+        var policy = rs.getString(COL_POLICY);
+        try {
+            return policy == null ? QueuePolicy.IN_ORDER : QueuePolicy.valueOf(policy);
+        } catch (IllegalArgumentException e) {
+            return QueuePolicy.IN_ORDER;
+        }
     }
 }
@@ -2,6 +2,7 @@ package io.beanvortex.bitkip.repo;
 
 import io.beanvortex.bitkip.models.QueueModel;
 import io.beanvortex.bitkip.models.ScheduleModel;
+import io.beanvortex.bitkip.models.SpeedProfile;
 import io.beanvortex.bitkip.models.TurnOffMode;
 
 import java.sql.ResultSet;
@@ -27,7 +28,8 @@ public class ScheduleRepo {
             COL_STOP_TIME_ENABLED = "stop_time_enabled",
             COL_STOP_TIME = "stop_time",
             COL_TURN_OFF_MODE_ENABLED = "turn_off_mode_enabled",
-            COL_TURN_OFF_MODE = "turn_off_mode";
+            COL_TURN_OFF_MODE = "turn_off_mode",
+            COL_SPEED_PROFILE = "speed_profile";
 
     public static final Set<DayOfWeek> DAYS = Set.of(SATURDAY, SUNDAY, MONDAY, TUESDAY, WEDNESDAY, THURSDAY, FRIDAY);
 
@@ -47,6 +49,7 @@ public class ScheduleRepo {
                     %s INTEGER,
                     %s VARCHAR,
                     %s INTEGER,
+                    %s VARCHAR,
                     FOREIGN KEY (%s) REFERENCES %s(%s) ON DELETE CASCADE
                     );
                 """
@@ -62,8 +65,19 @@ public class ScheduleRepo {
                         COL_TURN_OFF_MODE_ENABLED,
                         COL_TURN_OFF_MODE,
                         COL_QUEUE_ID,
+                        COL_SPEED_PROFILE,
                         COL_QUEUE_ID, QUEUES_TABLE_NAME, COL_ID);
         DatabaseHelper.runSQL(sql, false);
+        alters();
+    }
+
+    private static void alters() {
+        // NEW ALTERS SHOULD ADD ON TOP
+        var addAlters = """
+                ALTER TABLE %s ADD COLUMN %s VARCHAR;
+                """
+                .formatted(SCHEDULE_TABLE_NAME, COL_SPEED_PROFILE);
+        DatabaseHelper.runSQL(addAlters, true);
     }
 
     public static void insertSchedule(ScheduleModel schedule, int queueId) {
@@ -126,6 +140,7 @@ public class ScheduleRepo {
         var turnOffEnabled = rs.getBoolean(COL_TURN_OFF_MODE_ENABLED);
         var turnOffModeString = rs.getString(COL_TURN_OFF_MODE);
         var queueId = rs.getInt(COL_QUEUE_ID);
+        var speedProfile = SpeedProfile.parse(rs.getString(COL_SPEED_PROFILE));
 
         var vars = daysAsString.split(",");
         var days = Arrays.stream(vars)
@@ -136,14 +151,14 @@ public class ScheduleRepo {
         var stopTime = stopTimeString == null ? null : LocalTime.parse(stopTimeString);
         var turnOffMode = turnOffModeString == null ? null : TurnOffMode.valueOf(turnOffModeString);
         return new ScheduleModel(id, enabled, startTime, onceDownload, startDate, days, stopTimeEnabled,
-                stopTime, turnOffEnabled, turnOffMode, queueId, null, null);
+                stopTime, turnOffEnabled, turnOffMode, queueId, speedProfile, null, null);
     }
 
     public static void updateSchedule(ScheduleModel schedule) {
         var m = validScheduleProperties(schedule);
 
         var sql = """
-                UPDATE %s SET %s=%s,%s=%d,%s=%s,%s=%s,%s=%s,%s=%s,%s=%d,%s=%d,%s=%d
+                UPDATE %s SET %s=%s,%s=%d,%s=%s,%s=%s,%s=%s,%s=%s,%s=%d,%s=%d,%s=%d,%s=%s
                 WHERE %s=%d;
                 """
                 .formatted(SCHEDULE_TABLE_NAME,
@@ -156,6 +171,7 @@ public class ScheduleRepo {
                         COL_ENABLED, schedule.isEnabled() ? 1 : 0,
                         COL_TURN_OFF_MODE_ENABLED, schedule.isTurnOffEnabled() ? 1 : 0,
                         COL_STOP_TIME_ENABLED, schedule.isStopTimeEnabled() ? 1 : 0,
+                        COL_SPEED_PROFILE, m.get(COL_SPEED_PROFILE),
                         COL_ID, schedule.getId()
                 );
         DatabaseHelper.runSQL(sql, false);
@@ -206,6 +222,9 @@ public class ScheduleRepo {
         var turnOffMode = "NULL";
         if (schedule.getTurnOffMode() != null)
             turnOffMode = "\"" + schedule.getTurnOffMode() + "\"";
+        var speedProfile = "NULL";
+        if (schedule.getSpeedProfile() != null && !schedule.getSpeedProfile().isEmpty())
+            speedProfile = "\"" + schedule.getSpeedProfile() + "\"";
         var days = "NULL";
         if (schedule.getDays() == null)
             schedule.setDays(DAYS);
@@ -220,6 +239,7 @@ public class ScheduleRepo {
         m.put(COL_STOP_TIME, stopTime);
         m.put(COL_TURN_OFF_MODE, turnOffMode);
         m.put(COL_DAYS, days);
+        m.put(COL_SPEED_PROFILE, speedProfile);
         return m;
     }
 
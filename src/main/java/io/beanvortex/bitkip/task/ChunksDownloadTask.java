@@ -1,52 +1,102 @@
 package io.beanvortex.bitkip.task;
 
+import io.beanvortex.bitkip.utils.AppExecutors;
+import io.beanvortex.bitkip.utils.BandwidthLimiter;
+import io.beanvortex.bitkip.utils.ConnectionGovernor;
+import io.beanvortex.bitkip.utils.DownloadAdmission;
+import io.beanvortex.bitkip.utils.DownloadJournal;
 import io.beanvortex.bitkip.utils.DownloadOpUtils;
 import io.beanvortex.bitkip.utils.IOUtils;
 import io.beanvortex.bitkip.controllers.DetailsController;
 import io.beanvortex.bitkip.exceptions.DeniedException;
+import io.beanvortex.bitkip.exceptions.ServerRefusedException;
+import io.beanvortex.bitkip.models.ByteRange;
+import io.beanvortex.bitkip.models.DownloadMetadata;
 import io.beanvortex.bitkip.models.DownloadModel;
 import io.beanvortex.bitkip.models.DownloadStatus;
+import io.beanvortex.bitkip.models.HashAlgorithm;
+import io.beanvortex.bitkip.models.Segment;
 import io.beanvortex.bitkip.repo.DownloadsRepo;
 import io.beanvortex.bitkip.utils.DownloadUtils;
+import io.beanvortex.bitkip.utils.HashUtils;
+import io.beanvortex.bitkip.utils.HostConcurrency;
+import io.beanvortex.bitkip.utils.HttpClientUtils;
+import io.beanvortex.bitkip.utils.StreamingDigest;
+import io.beanvortex.bitkip.utils.TokenBucket;
+import io.beanvortex.bitkip.utils.UrlProbeCache;
 import javafx.application.Platform;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.net.*;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
-import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.FileTime;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.beanvortex.bitkip.config.AppConfigs.*;
 
 public class ChunksDownloadTask extends DownloadTask {
     private final int chunks;
-    private long speedLimit;
+    private final TokenBucket speedLimitBucket;
+    private TokenBucket queueBucket;
     private final long byteLimit;
-    private boolean isSpeedLimited;
-    private final List<FileChannel> fileChannels = new ArrayList<>();
+    private static final int BUFFER_SIZE = 65_536;
+    // must be greater than BUFFER_SIZE, see Segment#split
+    private static final long MIN_STEAL_SIZE = 1_048_576;
+    private static final int INITIAL_CONNECTIONS = 4;
+    private final List<FileChannel> fileChannels = new CopyOnWriteArrayList<>();
     private final List<Path> filePaths = new ArrayList<>();
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final Queue<Future<?>> futures = new ConcurrentLinkedQueue<>();
+    // segments that no connection is downloading
+    private final Deque<Segment> pending = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    // connections to close, each one closes itself after its current read
+    private final AtomicInteger surplus = new AtomicInteger();
+    private boolean acceptingConnections = true;
+    private ConnectionTuner tuner;
     private volatile boolean paused;
-    private volatile boolean isCalculating;
+    private long fileSize;
+    // segments cover every unconfirmed byte only after parts are prepared
+    private volatile boolean partsPrepared;
+    // at most one checkpoint of the sampler is in flight
+    private final AtomicBoolean checkpointing = new AtomicBoolean();
+    // downloaded bytes of previous tries
+    private long initialFileSize;
+    private long lastSampledFileSize;
+    private volatile boolean finished;
     private final boolean isByteLimited;
-    private ExecutorService executor;
+    private final ExecutorService executor = AppExecutors.DOWNLOADS;
     private boolean blocking;
     private String url;
-    private long bytesToDownloadEachInCycleLimited;
-    private boolean newLimitSet;
-    private long lastModified;
+    private DownloadMetadata metadata;
+    private boolean singleFile;
+    private Path singleFilePath;
+    // ranges the file is split into at start, each one is a part file when it is not a single file
+    private int parts;
+    private long bytesForEach;
+    private StreamingDigest digest;
+    private MirrorPool mirrors;
+    private final StallWatchdog watchdog = new StallWatchdog();
+    // streams of segments which are being downloaded, closed to cancel a stalled request
+    private final Map<Segment, ReadableByteChannel> activeStreams = new ConcurrentHashMap<>();
+    private DownloadJournal journal;
+    private boolean httpClientEngine;
 
     public ChunksDownloadTask(DownloadModel downloadModel, long speedLimit, long byteLimit) throws DeniedException {
         super(downloadModel);
@@ -55,10 +105,9 @@ public class ChunksDownloadTask extends DownloadTask {
         if (byteLimit == 0)
             throw new DeniedException("File did not download due to 0 bytes chosen to download");
         this.chunks = downloadModel.getChunks();
-        this.speedLimit = speedLimit;
+        this.speedLimitBucket = new TokenBucket(speedLimit);
         this.byteLimit = byteLimit;
         isByteLimited = true;
-        isSpeedLimited = speedLimit != 0;
     }
 
 
@@ -73,7 +122,14 @@ public class ChunksDownloadTask extends DownloadTask {
             var parentFolder = Path.of(file.getPath()).getParent().toFile();
             if (!parentFolder.exists())
                 parentFolder.mkdir();
-            downloadInChunks(fileSize);
+            try (var ticket = DownloadAdmission.acquire(downloadModel, () -> paused)) {
+                if (ticket == null || paused)
+                    return 0L;
+                prepareMetadata(fileSize);
+                mirrors = new MirrorPool(prepareMirrors(fileSize));
+                queueBucket = BandwidthLimiter.findQueueBucket(downloadModel);
+                downloadInChunks(fileSize);
+            }
         } catch (Exception e) {
             log.error(e.getMessage());
         }
@@ -81,201 +137,609 @@ public class ChunksDownloadTask extends DownloadTask {
     }
 
 
+    /**
+     * Probes the download once, so connections of chunks only send range requests to the final url
+     */
+    private void prepareMetadata(long fileSize) throws IOException {
+        metadata = downloadModel.getMetadata();
+        if (metadata == null) {
+            try {
+                metadata = DownloadUtils.probeMetadata(url);
+                downloadModel.setMetadata(metadata);
+            } catch (IOException e) {
+                log.warn("Could not probe %s, chunks use the original url: %s".formatted(downloadModel.getName(), e.getMessage()));
+                return;
+            }
+        }
+        if (metadata.size() > 0 && metadata.size() != fileSize) {
+            UrlProbeCache.SHARED.invalidate(downloadModel.getUri());
+            throw new IOException("Size of %s on server has changed from %d to %d, restart the download"
+                    .formatted(downloadModel.getName(), fileSize, metadata.size()));
+        }
+        url = metadata.finalUrl();
+    }
+
+    /**
+     * Mirrors are probed in parallel, only those which serve the same file as the original url are used
+     *
+     * @return final urls of the original url and usable mirrors
+     */
+    private List<String> prepareMirrors(long fileSize) {
+        var urls = new ArrayList<String>();
+        urls.add(url);
+        downloadModel.getMirrors().stream()
+                .map(mirror -> CompletableFuture.supplyAsync(() -> probeMirror(mirror, fileSize), executor))
+                .toList()
+                .stream()
+                .map(CompletableFuture::join)
+                .filter(Objects::nonNull)
+                .forEach(urls::add);
+        if (urls.size() > 1)
+            log.info("Downloading %s from %d mirrors".formatted(downloadModel.getName(), urls.size()));
+        return urls;
+    }
+
+    private String probeMirror(String mirror, long fileSize) {
+        try {
+            var mirrorMetadata = DownloadUtils.probeMetadata(mirror);
+            var mismatch = findMismatch(mirrorMetadata, fileSize);
+            if (mismatch == null)
+                return mirrorMetadata.finalUrl();
+            log.warn("Mirror is not used, %s: %s".formatted(mismatch, mirror));
+        } catch (IOException e) {
+            log.warn("Mirror is not used, could not probe it: %s: %s".formatted(mirror, e.getMessage()));
+        }
+        return null;
+    }
+
+    /**
+     * ETags are generated by each server, so mirrors are compared by size, hash and last modified instead
+     *
+     * @return null if mirror serves the same file as the original url
+     */
+    private String findMismatch(DownloadMetadata mirror, long fileSize) {
+        if (!mirror.resumable())
+            return "it does not accept ranges";
+        if (mirror.size() != fileSize)
+            return "size is %d instead of %d".formatted(mirror.size(), fileSize);
+        if (metadata == null)
+            return null;
+        if (metadata.hash() != null && mirror.hash() != null && !metadata.hash().equalsIgnoreCase(mirror.hash()))
+            return "hash is %s instead of %s".formatted(mirror.hash(), metadata.hash());
+        if (metadata.eTag() != null && metadata.eTag().equals(mirror.eTag()))
+            return null;
+        if (metadata.lastModified() != 0 && mirror.lastModified() != 0 && metadata.lastModified() != mirror.lastModified())
+            return "last modified is different";
+        return null;
+    }
+
     private void downloadInChunks(long fileSize)
             throws IOException, InterruptedException, ExecutionException {
-        calculateSpeedAndProgress(fileSize);
-        var futures = prepareParts(fileSize);
-        if (!futures.isEmpty()) {
-            isCalculating = true;
+        this.fileSize = fileSize;
+        prepareParts(fileSize);
+        prepareDigest();
+        if (!segments.isEmpty()) {
+            initialFileSize = fileSize;
+            for (var segment : segments)
+                initialFileSize -= segment.remaining();
+            lastSampledFileSize = initialFileSize;
             log.info("Downloading : " + downloadModel);
-            for (var future : futures)
-                future.get();
+            segments.stream().filter(s -> !s.isDone()).forEach(pending::add);
+            var initial = downloadModel.getConnections();
+            if (initial <= 0)
+                initial = HostConcurrency.learnedLimit(url);
+            if (initial <= 0)
+                initial = INITIAL_CONNECTIONS;
+            initial = Math.min(initial, DownloadAdmission.connectionShare());
+            tuner = new ConnectionTuner(initial, chunks);
+            for (int i = 0; i < tuner.getTarget(); i++)
+                startConnection();
+            ProgressSampler.register(this);
+            // connections are added while others are running
+            while (true) {
+                Future<?> future;
+                while ((future = futures.poll()) != null)
+                    future.get();
+                synchronized (futures) {
+                    if (futures.isEmpty()) {
+                        acceptingConnections = false;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Hash of the file is computed with the algorithm of the expected hash, or SHA-256 if there is none
+     */
+    private void prepareDigest() {
+        if (downloadModel.getExpectedHash() == null && metadata != null && metadata.hash() != null) {
+            downloadModel.setExpectedHash(metadata.hash());
+            DownloadsRepo.updateDownloadExpectedHash(downloadModel);
         }
+        var expectedHash = downloadModel.getExpectedHash();
+        digest = new StreamingDigest(expectedHash != null ? HashUtils.algorithmOf(expectedHash) : HashAlgorithm.SHA_256);
     }
 
-    private List<Future<?>> prepareParts(long fileSize) throws IOException {
-        var futures = new ArrayList<Future<?>>();
-        var bytesForEach = fileSize / chunks;
-        var to = bytesForEach;
-        var from = 0L;
-        var fromContinue = 0L;
+    private void prepareParts(long fileSize) throws IOException {
         var tempFolderPath = Paths.get(downloadModel.getFilePath()).getParent() + File.separator + ".temp" + File.separator;
         if (!Files.exists(Path.of(tempFolderPath)))
             new File(tempFolderPath).mkdir();
-        var lastPartSize = fileSize - ((chunks - 1) * bytesForEach);
-        for (int i = 0; i < chunks; i++, from = to, to += bytesForEach) {
-            var filePath = tempFolderPath + downloadModel.getName() + "#" + i;
-            filePaths.add(Paths.get(filePath));
-            var partFile = new File(filePath);
-            var existingFileSize = 0L;
-            if (!partFile.exists())
-                partFile.createNewFile();
-            else {
-                existingFileSize = IOUtils.getFileSize(partFile);
-                if (i + 1 != chunks && existingFileSize == bytesForEach)
-                    continue;
-
-                if (i + 1 == chunks && existingFileSize == lastPartSize)
-                    continue;
+        singleFile = usesSingleFile(tempFolderPath);
+        parts = singleFile ? chunks : partCount(tempFolderPath);
+        bytesForEach = fileSize / parts;
+        if (singleFile)
+            prepareSingleFile(fileSize, tempFolderPath);
+        else
+            for (int i = 0; i < parts; i++) {
+                var filePath = Paths.get(tempFolderPath + downloadModel.getName() + "#" + i);
+                filePaths.add(filePath);
+                var partFile = filePath.toFile();
+                if (!partFile.exists())
+                    partFile.createNewFile();
             }
+        journal = new DownloadJournal(Path.of(tempFolderPath + downloadModel.getName() + DownloadJournal.EXTENSION));
+        loadJournal(fileSize);
+        var confirmed = journal.getConfirmed().stream()
+                .sorted(Comparator.comparingLong(ByteRange::start))
+                .toList();
+        for (int i = 0; i < parts; i++) {
+            var from = i * bytesForEach;
+            var to = i + 1 == parts ? fileSize - 1 : from + bytesForEach - 1;
+            if (singleFile)
+                addUnconfirmedSegments(singleFilePath, 0, from, to, confirmed);
+            else
+                addUnconfirmedSegments(filePaths.get(i), from, from, to, confirmed);
+        }
+        partsPrepared = true;
+        checkpoint(false);
+    }
+
+    /**
+     * Downloads that already have part files keep using them, so the layout never changes in the middle of a download
+     */
+    private boolean usesSingleFile(String tempFolderPath) {
+        var name = downloadModel.getName();
+        if (Files.exists(Path.of(tempFolderPath + name + "#0")))
+            return false;
+        return Files.exists(Path.of(tempFolderPath + name)) || preallocateFile;
+    }
 
-            fromContinue = from + existingFileSize;
+    /**
+     * Part files are only made when preallocation is turned off, or for a download which has them from before.
+     * Connections split the ranges of parts between themselves, so a download needs only as many part files
+     * as connections it starts with, not as many as it may grow to, and fewer parts are merged at the end
+     */
+    private int partCount(String tempFolderPath) {
+        var existing = 0;
+        while (Files.exists(Path.of(tempFolderPath + downloadModel.getName() + "#" + existing)))
+            existing++;
+        if (existing > 0)
+            return existing;
+        var learned = HostConcurrency.learnedLimit(url);
+        var initial = Math.min(learned > 0 ? learned : INITIAL_CONNECTIONS, DownloadAdmission.connectionShare());
+        return Math.min(initial, chunks);
+    }
 
-            if (i + 1 == chunks && to != fileSize) {
-                to = fileSize;
-                if (fromContinue == to)
-                    break;
+    /**
+     * All chunks are written into one file which is allocated at full size, so no merge is needed at the end
+     */
+    private void prepareSingleFile(long fileSize, String tempFolderPath) throws IOException {
+        singleFilePath = Path.of(tempFolderPath + downloadModel.getName());
+        if (Files.exists(singleFilePath))
+            return;
+        IOUtils.checkAvailableSpace(singleFilePath, fileSize);
+        try (var file = new RandomAccessFile(singleFilePath.toFile(), "rw")) {
+            file.setLength(fileSize);
+        }
+    }
+
+    private void loadJournal(long fileSize) throws IOException {
+        if (journal.exists()) {
+            try {
+                journal.load(metadata);
+                if (!journal.wasClean())
+                    journal.verify(range -> singleFile ? singleFilePath : filePaths.get(partIndexOf(range)),
+                            range -> singleFile ? 0 : partIndexOf(range) * bytesForEach);
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.error("Could not read journal, downloading from start: " + e.getMessage());
             }
+        }
+        journal.setValidator(metadata);
+        if (singleFile)
+            return;
+        // part files of downloads which started before the journal
+        for (int i = 0; i < parts; i++) {
+            var from = i * bytesForEach;
+            var to = i + 1 == parts ? fileSize - 1 : from + bytesForEach - 1;
+            var existingFileSize = IOUtils.getFileSize(filePaths.get(i).toFile());
+            if (existingFileSize > 0)
+                journal.addConfirmed(new ByteRange(from, Math.min(from + existingFileSize - 1, to), ByteRange.UNKNOWN_CHECKSUM));
+        }
+    }
+
+    private int partIndexOf(ByteRange range) {
+        return (int) Math.min(range.start() / bytesForEach, parts - 1);
+    }
 
-            var finalTo = to - 1;
-            addFutures(existingFileSize, futures, partFile, fromContinue, from, finalTo);
+    /**
+     * Adds segments for the bytes between from and to which are not confirmed by the journal
+     */
+    private void addUnconfirmedSegments(Path file, long fileOffset, long from, long to, List<ByteRange> confirmed) {
+        var next = from;
+        for (var range : confirmed) {
+            if (range.end() < next || range.start() > to)
+                continue;
+            if (range.start() > next)
+                segments.add(new Segment(file, fileOffset, next, range.start() - 1));
+            next = range.end() + 1;
         }
-        return futures;
+        if (next <= to)
+            segments.add(new Segment(file, fileOffset, next, to));
     }
 
-    private void addFutures(long fileSize, ArrayList<Future<?>> futures,
-                            File partFile, long fromContinue, long from, long to) {
-        Future<?> c;
-        if (isSpeedLimited) {
-            bytesToDownloadEachInCycleLimited = speedLimit / chunks;
-            c = executor.submit(() -> {
-                try {
-                    performSpeedLimitedDownload(fromContinue, from, to,
-                            partFile, fileSize, 0, 0);
-                } catch (IOException e) {
-                    log.error(e.getMessage());
-                    this.pause();
-                }
-            });
-        } else {
-            c = executor.submit(() -> {
+    private void checkpoint(boolean clean) {
+        DownloadJournal.Snapshot snapshot;
+        // a split must not happen between taking ranges of segments, fsync is done after the lock is released
+        synchronized (segments) {
+            snapshot = journal.snapshot(segments);
+        }
+        try {
+            journal.checkpoint(snapshot, clean);
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Called by the sampler, which is shared by all downloads, so fsync runs on a download thread instead
+     */
+    private void checkpointInBackground() {
+        if (!checkpointing.compareAndSet(false, true))
+            return;
+        executor.execute(() -> {
+            try {
+                checkpoint(false);
+            } finally {
+                checkpointing.set(false);
+            }
+        });
+    }
+
+    private boolean completeSingleFile(DownloadModel dm) throws IOException {
+        if (!Files.exists(singleFilePath))
+            return false;
+        Files.move(singleFilePath, Path.of(dm.getFilePath()), StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    /**
+     * A stolen tail is written at the end of its part file, which stretches the file to its full length
+     * while bytes before the tail may still be missing, so sizes of files can not tell that a download is complete
+     */
+    static boolean isComplete(List<Segment> segments) {
+        return segments.stream().allMatch(Segment::isDone);
+    }
+
+    /**
+     * A connection downloads segments one after another until no work is left, download is paused
+     * or it is closed by the tuner
+     */
+    private void startConnection() {
+        synchronized (futures) {
+            if (!acceptingConnections || paused)
+                return;
+            connections.incrementAndGet();
+            futures.add(executor.submit(() -> {
                 try {
-                    performDownload(fromContinue, from, to, partFile, fileSize, 0, 0);
+                    Segment segment;
+                    while (!paused && !tryRetire() && (segment = nextSegment()) != null) {
+                        var retired = new AtomicBoolean();
+                        performDownload(segment, retired);
+                        if (!segment.isDone()) {
+                            // left by a closed connection or one that has given up
+                            pending.addFirst(segment);
+                            break;
+                        }
+                        catchUpDigest();
+                    }
                 } catch (IOException e) {
                     log.error(e.getMessage());
                     this.pause();
+                } finally {
+                    connections.decrementAndGet();
                 }
-            });
+            }));
         }
-        futures.add(c);
     }
 
-
-    private void performDownload(long fromContinue, long from, long to, File partFile,
-                                 long existingFileSize, int rateLimitCount, int retries)
-            throws IOException {
+    /**
+     * Hashes bytes which were written ahead of the digest, from the end of the previous range to the
+     * position of the connection which now writes at the cursor
+     */
+    private boolean catchUpDigest() {
         try {
-            var con = DownloadUtils.connect(url);
-            var con2 = DownloadUtils.connect(url);
-            lastModified = con2.getLastModified();
-            con.addRequestProperty("Range", "bytes=" + fromContinue + "-" + to);
-            var out = new FileOutputStream(partFile, partFile.exists());
-            var fileChannel = out.getChannel();
-            fileChannels.add(fileChannel);
-            var byteChannel = Channels.newChannel(con.getInputStream());
-            fileChannel.transferFrom(byteChannel, existingFileSize, to - fromContinue + 1);
-            fileChannels.remove(fileChannel);
-            fileChannel.close();
-            con.disconnect();
-        } catch (SocketTimeoutException | UnknownHostException | SocketException s) {
-            retries++;
-            if (!paused && (continueOnLostConnectionLost || retries != downloadRetryCount)) {
-                try {
-                    Thread.sleep(2000);
-                } catch (InterruptedException ignore) {
-                }
-                var currFileSize = IOUtils.getFileSize(partFile);
-                performDownload(from + currFileSize, from, to, partFile, currFileSize, rateLimitCount, retries);
-            }
-        } catch (ClosedChannelException ignore) {
+            digest.catchUp(this::firstUnwrittenByte, this::readWritten);
+            return true;
+        } catch (IOException e) {
+            log.error("Could not hash %s: %s".formatted(downloadModel.getName(), e.getMessage()));
+            return false;
+        }
+    }
+
+    private long firstUnwrittenByte() {
+        // a stolen segment is in neither of its halves until it is added
+        synchronized (segments) {
+            var first = fileSize;
+            for (var segment : segments)
+                if (!segment.isDone())
+                    first = Math.min(first, segment.getPosition());
+            return first;
+        }
+    }
+
+    private int readWritten(ByteBuffer buffer, long position) throws IOException {
+        var file = singleFilePath;
+        var fileOffset = 0L;
+        if (!singleFile) {
+            var partIndex = (int) Math.min(position / bytesForEach, parts - 1);
+            file = filePaths.get(partIndex);
+            fileOffset = partIndex * bytesForEach;
+            if (partIndex + 1 < parts)
+                buffer.limit((int) Math.min(buffer.limit(), fileOffset + bytesForEach - position));
         }
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.read(buffer, position - fileOffset);
+        }
+    }
 
-        // when connection has been closed by the server
-        var currFileSize = IOUtils.getFileSize(partFile);
-        if (!paused && currFileSize != (to - from + 1)
-                && (continueOnLostConnectionLost || downloadRateLimitCount < rateLimitCount)) {
-            rateLimitCount++;
-            performDownload(from + currFileSize, from, to, partFile, currFileSize, rateLimitCount, retries);
+    private Segment nextSegment() {
+        var segment = pending.poll();
+        return segment != null ? segment : stealWork();
+    }
+
+    /**
+     * When a connection finishes its range, it takes over the second half of the largest remaining range,
+     * so all connections stay busy until the last byte
+     */
+    private Segment stealWork() {
+        var largest = segments.stream()
+                .filter(s -> !s.isDone())
+                .max(Comparator.comparingLong(Segment::remaining));
+        if (largest.isEmpty())
+            return null;
+        Segment stolen;
+        // journal must never see the shrunk segment without the stolen one
+        synchronized (segments) {
+            stolen = largest.get().split(MIN_STEAL_SIZE);
+            if (stolen == null)
+                return null;
+            segments.add(stolen);
         }
+        log.info("Split %s to take over %s of %s".formatted(largest.get(), stolen, downloadModel.getName()));
+        return stolen;
+    }
 
+    private boolean hasWork() {
+        return !pending.isEmpty() || segments.stream().anyMatch(s -> s.remaining() / 2 >= MIN_STEAL_SIZE);
     }
 
+    private boolean tryRetire() {
+        int count;
+        while ((count = surplus.get()) > 0)
+            if (surplus.compareAndSet(count, count - 1))
+                return true;
+        return false;
+    }
+
+    /**
+     * Opens or closes connections to reach the number that tuner decided from the throughput
+     */
+    private void tuneConnections(long bytesPerSecond) {
+        var target = tuner.sample(bytesPerSecond);
+        var current = connections.get() - surplus.get();
+        if (target > current) {
+            surplus.set(0);
+            for (int i = connections.get(); i < target && hasWork(); i++)
+                startConnection();
+        } else if (target < current)
+            surplus.set(connections.get() - target);
+        if (downloadModel.getConnections() != target) {
+            log.info("Using %d connections for %s".formatted(target, downloadModel.getName()));
+            downloadModel.setConnections(target);
+        }
+    }
 
-    private void performSpeedLimitedDownload(long fromContinue, long from, long to,
-                                             File partFile, long existingFileSize,
-                                             int rateLimitCount, int retries) throws IOException {
-        if (retries != downloadRetryCount) {
+    private void watchStalls() {
+        watchdog.sample(activeStreams.keySet()).forEach((segment, action) -> {
+            if (action == StallWatchdog.Action.HEDGE && hedge(segment))
+                return;
+            cancel(segment);
+        });
+    }
+
+    /**
+     * Gives the rest of a stalled segment to a new connection, its own connection only finishes the current read
+     *
+     * @return false if too little is left to hedge
+     */
+    private boolean hedge(Segment segment) {
+        if (segment.remaining() < 2 * MIN_STEAL_SIZE)
+            return false;
+        Segment hedged;
+        synchronized (segments) {
+            hedged = segment.splitAt(segment.getPosition() + BUFFER_SIZE);
+            if (hedged == null)
+                return false;
+            segments.add(hedged);
+        }
+        log.info("Hedging a stalled range of %s from %d".formatted(downloadModel.getName(), hedged.getStart()));
+        pending.addFirst(hedged);
+        startConnection();
+        return true;
+    }
+
+    /**
+     * Closes the stream of a stalled segment, its connection requests the rest of it again
+     */
+    private void cancel(Segment segment) {
+        var stream = activeStreams.get(segment);
+        if (stream == null)
+            return;
+        log.info("Requesting a stalled range of %s again from %d".formatted(downloadModel.getName(), segment.getPosition()));
+        try {
+            stream.close();
+        } catch (IOException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Requests the segment until it is done, sending it again after failures as {@link RetryPolicy} decides.
+     * Returns with the segment not done when connection is retired or retries are spent
+     */
+    private void performDownload(Segment segment, AtomicBoolean retired) throws IOException {
+        var retryPolicy = new RetryPolicy(downloadRetryCount, downloadRateLimitCount, continueOnLostConnectionLost);
+        while (!paused && !retired.get() && !segment.isDone()) {
+            var mirror = mirrors.acquire();
+            var positionBefore = segment.getPosition();
+            long delay;
             try {
-                var con = DownloadUtils.connect(url);
-                var con2 = DownloadUtils.connect(url);
-                lastModified = con2.getLastModified();
-                if (!downloadModel.isResumable())
-                    con.setRequestProperty("User-Agent", userAgent);
-                con.addRequestProperty("Range", "bytes=" + fromContinue + "-" + to);
-                var out = new FileOutputStream(partFile, partFile.exists());
-                var fileChannel = out.getChannel();
-                fileChannels.add(fileChannel);
-                var byteChannel = Channels.newChannel(con.getInputStream());
-                long finalExistingFileSize = existingFileSize;
-                while (from + finalExistingFileSize < to) {
-                    fileChannel.transferFrom(byteChannel, finalExistingFileSize, bytesToDownloadEachInCycleLimited);
-                    finalExistingFileSize += bytesToDownloadEachInCycleLimited;
-                    try {
-                        Thread.sleep(ONE_SEC);
-                    } catch (InterruptedException ignore) {
-                    }
+                // waits in line while host or app has no free connection
+                try (var permit = ConnectionGovernor.acquire(mirror.getUrl(), downloadModel.getId(),
+                        () -> paused || retired.get())) {
+                    if (permit != null)
+                        fetch(segment, mirror, retired);
+                } finally {
+                    mirrors.release(mirror);
                 }
-                fileChannel.close();
-                con.disconnect();
-                con2.disconnect();
-            } catch (SocketTimeoutException | UnknownHostException s) {
-                if (!paused) {
-                    retries++;
-                    try {
-                        Thread.sleep(2000);
-                    } catch (InterruptedException ignore) {
-                    }
-                    var currFileSize = IOUtils.getFileSize(partFile);
-                    performSpeedLimitedDownload(from + currFileSize, from, to, partFile,
-                            currFileSize, rateLimitCount, retries);
+                if (paused || retired.get() || segment.isDone() || mirror.isDropped())
+                    continue;
+                // connection has been closed by the server before the end of range,
+                // one that closes before any byte is a failed connect, so backoff keeps growing
+                HostConcurrency.onCongested(mirror.getUrl());
+                delay = segment.getPosition() > positionBefore ?
+                        retryPolicy.onTransferReset() : retryPolicy.onConnectFailure();
+            } catch (SocketTimeoutException | UnknownHostException | SocketException e) {
+                if (!(e instanceof UnknownHostException))
+                    HostConcurrency.onCongested(mirror.getUrl());
+                if (mirrors.onFailure(mirror, e))
+                    continue;
+                delay = segment.getPosition() > positionBefore ?
+                        retryPolicy.onTransferReset() : retryPolicy.onConnectFailure();
+            } catch (ServerRefusedException e) {
+                HostConcurrency.onCongested(mirror.getUrl());
+                tuner.onRefused();
+                // other connections continue the segment
+                if (connections.get() > 1) {
+                    log.warn(e.getMessage());
+                    retired.set(true);
+                    return;
                 }
-            } catch (ClosedChannelException ignore) {
+                delay = retryPolicy.onRefused(e.getRetryAfter());
+            } catch (ClosedChannelException e) {
+                // paused, or cancelled by the watchdog to be requested again
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                // e.g. a mirror which has removed the file, others continue the segment
+                if (paused || !mirrors.onFailure(mirror, e))
+                    throw e;
+                log.warn("Mirror failed: %s: %s".formatted(mirror.getUrl(), e.getMessage()));
+                continue;
             }
-            var currFileSize = IOUtils.getFileSize(partFile);
-            if (!paused && currFileSize != (to - from + 1) && downloadRateLimitCount < rateLimitCount) {
-                rateLimitCount++;
-                performSpeedLimitedDownload(from + currFileSize, from, to, partFile, currFileSize
-                        , rateLimitCount, retries);
+            if (delay < 0) {
+                log.error("Gave up on a range of %s at %d".formatted(downloadModel.getName(), segment.getPosition()));
+                return;
             }
+            RetryPolicy.sleep(delay, () -> paused);
         }
     }
 
+    private void fetch(Segment segment, MirrorPool.Mirror mirror, AtomicBoolean retired) throws IOException {
+        HttpURLConnection con = null;
+        InputStream in;
+        if (httpClientEngine)
+            in = HttpClientUtils.openRange(mirror.getUrl(), segment.getPosition(), segment.getEnd());
+        else {
+            con = DownloadUtils.connect(mirror.getUrl());
+            con.addRequestProperty("Range", "bytes=" + segment.getPosition() + "-" + segment.getEnd());
+            var responseCode = con.getResponseCode();
+            if (responseCode == 429 || responseCode == 503) {
+                var retryAfter = HttpClientUtils.parseRetryAfter(con.getHeaderField("Retry-After"));
+                con.disconnect();
+                throw new ServerRefusedException("Server refused a connection of %s: %d"
+                        .formatted(downloadModel.getName(), responseCode), retryAfter);
+            }
+            in = con.getInputStream();
+        }
+        HostConcurrency.onHealthy(mirror.getUrl());
+        watchdog.onRequest();
+        var fileChannel = FileChannel.open(segment.getFile(), StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        fileChannels.add(fileChannel);
+        try (var byteChannel = Channels.newChannel(in)) {
+            activeStreams.put(segment, byteChannel);
+            transfer(segment, mirror, retired, byteChannel, fileChannel);
+        } finally {
+            activeStreams.remove(segment);
+            fileChannels.remove(fileChannel);
+            fileChannel.close();
+            if (con != null)
+                con.disconnect();
+        }
+    }
 
-    private void calculateSpeedAndProgress(long fileSize) {
-        Runnable runnable = () -> {
-            Thread.currentThread().setName("calculator: " + Thread.currentThread().getName());
-            try {
-                while (!isCalculating) Thread.onSpinWait();
-                Thread.sleep(ONE_SEC);
-                while (!paused) {
-                    var currentFileSize = 0L;
-                    for (int i = 0; i < chunks; i++)
-                        currentFileSize += Files.size(filePaths.get(i));
-                    updateProgress(currentFileSize, fileSize);
-                    updateValue(currentFileSize);
-                    if (isByteLimited && currentFileSize >= byteLimit)
-                        pause();
-                    Thread.sleep(ONE_SEC);
-                }
-            } catch (InterruptedException | NoSuchFileException ignore) {
-            } catch (IOException e) {
-                log.error(e.getLocalizedMessage());
+    /**
+     * Reads at most the remaining bytes of the segment, since its end may be shrunk by another connection.
+     * Stops when tuner closes this connection, leaving the rest of the segment to others,
+     * or when its mirror is dropped, so the segment continues from another mirror
+     */
+    private void transfer(Segment segment, MirrorPool.Mirror mirror, AtomicBoolean retired,
+                          ReadableByteChannel in, FileChannel out) throws IOException {
+        var buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        while (!paused && !segment.isDone() && !mirror.isDropped()) {
+            if (tryRetire()) {
+                retired.set(true);
+                break;
             }
-        };
-        if (lessCpuIntensive)
-            new Thread(runnable).start();
-        else
-            executor.submit(runnable);
+            var allowed = Math.min(BandwidthLimiter.maxRead(buffer.capacity(), speedLimitBucket, queueBucket),
+                    segment.remaining());
+            buffer.clear().limit((int) allowed);
+            var read = in.read(buffer);
+            if (read == -1)
+                break;
+            buffer.flip();
+            var position = segment.getFilePosition();
+            while (buffer.hasRemaining())
+                position += out.write(buffer, position);
+            buffer.rewind();
+            digest.offer(segment.getPosition(), buffer.duplicate());
+            segment.advance(buffer);
+            downloadedBytes.add(read);
+            mirror.onRead(read);
+            BandwidthLimiter.acquire(read, speedLimitBucket, queueBucket);
+        }
+    }
+
+    @Override
+    protected void sample() {
+        if (paused || finished)
+            return;
+        var currentFileSize = initialFileSize + downloadedBytes.sum();
+        tuneConnections(currentFileSize - lastSampledFileSize);
+        mirrors.sample();
+        watchStalls();
+        lastSampledFileSize = currentFileSize;
+        updateProgress(currentFileSize, fileSize);
+        updateValue(currentFileSize);
+        if (journal.isSyncDue())
+            checkpointInBackground();
+        if (isByteLimited && currentFileSize >= byteLimit)
+            pause();
     }
 
     @Override
@@ -307,18 +771,34 @@ public class ChunksDownloadTask extends DownloadTask {
     }
 
     private void runFinalization() {
+        finished = true;
+        ProgressSampler.unregister(this);
         try {
             for (var channel : new ArrayList<>(fileChannels))
                 if (channel != null)
                     channel.close();
-            var dmOpt = currentDownloadings.stream()
-                    .filter(c -> c.equals(downloadModel))
-                    .findFirst();
+            if (journal != null) {
+                checkpoint(true);
+                journal.close();
+            }
+            var dmOpt = Optional.ofNullable(currentDownloadings.find(downloadModel));
             if (dmOpt.isPresent()) {
                 var download = dmOpt.get();
-                if (!newLimitSet)
-                    download.setDownloadStatus(DownloadStatus.Paused);
-                if (IOUtils.mergeFiles(download, chunks, filePaths)) {
+                download.setDownloadStatus(DownloadStatus.Paused);
+                var hashMatches = true;
+                if (digest != null && firstUnwrittenByte() == fileSize && catchUpDigest())
+                    hashMatches = HashUtils.storeAndVerify(download, digest.getValue());
+                // parts are not prepared when it is paused while waiting for admission,
+                // and a corrupted file keeps its parts and journal, so it is verified again on resume
+                var completed = false;
+                if (partsPrepared && hashMatches) {
+                    if (download.getDownloaded() == 0)
+                        download.setDownloaded(fileSize - segments.stream().mapToLong(Segment::remaining).sum());
+                    completed = isComplete(segments)
+                            && (singleFile ? completeSingleFile(download) : IOUtils.mergeFiles(download, parts, filePaths));
+                }
+                if (completed) {
+                    journal.delete();
                     log.info("File successfully downloaded: " + download);
                     download.setCompleteDate(LocalDateTime.now());
                     download.setDownloadStatus(DownloadStatus.Completed);
@@ -327,26 +807,21 @@ public class ChunksDownloadTask extends DownloadTask {
                     mainTableUtils.refreshTable();
                     DownloadsRepo.updateDownloadCompleteDate(download);
                     updateProgress(1, 1);
-                    openDownloadings.stream().filter(dc -> dc.getDownloadModel().equals(download))
-                            .findFirst().ifPresentOrElse(dc -> dc.onComplete(download),
+                    Optional.ofNullable(openDownloadings.get(download.getId()))
+                            .ifPresentOrElse(dc -> dc.onComplete(download),
                                     () -> {
                                         if (download.isShowCompleteDialog())
                                             DownloadOpUtils.openDetailsStage(download);
                                     });
                     if (download.isOpenAfterComplete())
                         DownloadOpUtils.openFile(download);
-                    if (lastModified == 0) {
-                        var con2 = DownloadUtils.connect(url);
-                        lastModified = con2.getLastModified();
-                        con2.disconnect();
-                        if (lastModified == 0)
-                            lastModified = System.currentTimeMillis();
-                    }
+                    var lastModified = metadata != null && metadata.lastModified() != 0 ?
+                            metadata.lastModified() : System.currentTimeMillis();
                     var fileTime = FileTime.fromMillis(lastModified);
                     Files.setLastModifiedTime(Path.of(download.getFilePath()), fileTime);
-                } else if (!newLimitSet)
-                    openDownloadings.stream().filter(dc -> dc.getDownloadModel().equals(download))
-                            .forEach(DetailsController::onPause);
+                } else
+                    Optional.ofNullable(openDownloadings.get(download.getId()))
+                            .ifPresent(DetailsController::onPause);
 
                 DownloadsRepo.updateDownloadProgress(download);
                 DownloadsRepo.updateDownloadLastTryDate(download);
@@ -358,19 +833,11 @@ public class ChunksDownloadTask extends DownloadTask {
         } finally {
             currentDownloadings.remove(downloadModel);
             mainTableUtils.refreshTable();
-            if (executor != null && !blocking)
-                executor.shutdownNow();
             System.gc();
-            if (!newLimitSet) whenDone();
-            else newLimitSet = false;
+            whenDone();
         }
     }
 
-    @Override
-    public void setExecutor(ExecutorService executor) {
-        this.executor = executor;
-    }
-
     @Override
     public boolean isPaused() {
         return paused;
@@ -393,19 +860,17 @@ public class ChunksDownloadTask extends DownloadTask {
         succeeded();
     }
 
+    /**
+     * Chooses {@link HttpClientUtils} for range requests instead of a new {@link HttpURLConnection} for each one
+     */
+    public void setHttpClientEngine(boolean httpClientEngine) {
+        this.httpClientEngine = httpClientEngine;
+    }
+
+    /**
+     * Takes effect on the running connections, 0 removes the limit
+     */
     public void setSpeedLimit(long speedLimit) {
-        this.speedLimit = speedLimit;
-        if (isSpeedLimited && speedLimit != 0)
-            bytesToDownloadEachInCycleLimited = speedLimit / chunks;
-        else {
-            newLimitSet = true;
-            pause();
-            try {
-                DownloadOpUtils.triggerDownload(downloadModel, speedLimit, downloadModel.getSize(), true, false);
-            } catch (ExecutionException | InterruptedException e) {
-                log.error(e.getMessage());
-            }
-        }
-        this.isSpeedLimited = true;
+        speedLimitBucket.setRate(speedLimit);
     }
 }
@@ -0,0 +1,91 @@
+package io.beanvortex.bitkip.task;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides how many connections a download uses from its throughput.
+ * It starts with a few connections and adds more while each addition raises throughput,
+ * takes back the last addition when throughput stops rising and drops connections when server refuses them
+ */
+public class ConnectionTuner {
+
+    // added connections must raise throughput at least this much
+    private static final double GAIN = 1.1;
+    // samples to wait after a change, until new connections reach their speed
+    private static final int SETTLE_SAMPLES = 3;
+    // samples to wait before trying one more connection after throughput stopped rising
+    private static final int PROBE_SAMPLES = 30;
+
+    private final AtomicInteger refusals = new AtomicInteger();
+    private int max;
+    private int target;
+    private int previousTarget;
+    private double baseline;
+    private double average;
+    private int samplesSinceChange;
+    private boolean settled;
+
+    public ConnectionTuner(int initial, int max) {
+        this.max = Math.max(max, 1);
+        this.target = Math.max(Math.min(initial, this.max), 1);
+        this.previousTarget = target;
+    }
+
+    public synchronized int getTarget() {
+        return target;
+    }
+
+    /**
+     * Can be called by any connection, it is applied on the next sample
+     */
+    public void onRefused() {
+        refusals.incrementAndGet();
+    }
+
+    /**
+     * Should be called in fixed intervals
+     *
+     * @return number of connections that download should use from now
+     */
+    public synchronized int sample(long bytesPerSecond) {
+        average = average == 0 ? bytesPerSecond : (average + bytesPerSecond) / 2;
+        samplesSinceChange++;
+        if (refusals.getAndSet(0) > 0) {
+            // server will not accept this many again during this download
+            max = Math.max(target - 1, 1);
+            change(max);
+            settled = true;
+            return target;
+        }
+        if (samplesSinceChange < SETTLE_SAMPLES)
+            return target;
+        if (settled) {
+            if (samplesSinceChange >= PROBE_SAMPLES && target < max) {
+                settled = false;
+                grow(1);
+            }
+            return target;
+        }
+        if (baseline > 0 && average < baseline * GAIN) {
+            change(previousTarget);
+            settled = true;
+            return target;
+        }
+        if (target < max)
+            grow(Math.max(target / 2, 1));
+        else
+            settled = true;
+        return target;
+    }
+
+    private void grow(int step) {
+        baseline = average;
+        previousTarget = target;
+        change(Math.min(target + step, max));
+    }
+
+    private void change(int newTarget) {
+        target = newTarget;
+        samplesSinceChange = 0;
+    }
+}
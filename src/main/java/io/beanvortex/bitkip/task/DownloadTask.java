@@ -6,6 +6,7 @@ import io.beanvortex.bitkip.models.DownloadStatus;
 import io.beanvortex.bitkip.models.TurnOffMode;
 import io.beanvortex.bitkip.repo.DatabaseHelper;
 import io.beanvortex.bitkip.utils.FxUtils;
+import io.beanvortex.bitkip.utils.HashUtils;
 import io.beanvortex.bitkip.utils.IOUtils;
 import io.beanvortex.bitkip.utils.MainTableUtils;
 import io.beanvortex.bitkip.utils.PowerUtils;
@@ -14,7 +15,7 @@ import javafx.concurrent.Task;
 
 import java.io.File;
 import java.time.LocalDateTime;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
 
 import static io.beanvortex.bitkip.config.AppConfigs.currentDownloadings;
 import static io.beanvortex.bitkip.config.AppConfigs.log;
@@ -27,9 +28,16 @@ public abstract class DownloadTask extends Task<Long> {
 
     protected static final long ONE_SEC = 1000;
     protected DownloadModel downloadModel;
+    // bytes written by all connections of this try, read by ProgressSampler
+    protected final LongAdder downloadedBytes = new LongAdder();
 
     public abstract void pause();
 
+    /**
+     * Called by {@link ProgressSampler} once a second while the task is registered in it
+     */
+    protected abstract void sample();
+
     public DownloadTask(DownloadModel downloadModel) {
         this.downloadModel = downloadModel;
     }
@@ -39,7 +47,7 @@ public abstract class DownloadTask extends Task<Long> {
         try {
             var fs = downloadModel.getSize();
             var existingFileSize = IOUtils.getFileSize(file);
-            if (fs != 0 && existingFileSize == fs) {
+            if (fs != 0 && existingFileSize == fs && !HashUtils.isMismatched(downloadModel)) {
                 var downloaded = downloadModel.getDownloaded();
                 downloadModel.setDownloadStatus(DownloadStatus.Completed);
                 downloadModel.setProgress(100);
@@ -52,10 +60,7 @@ public abstract class DownloadTask extends Task<Long> {
                     DatabaseHelper.updateCols(cols, vals, DatabaseHelper.DOWNLOADS_TABLE_NAME, downloadModel.getId());
                 }
                 mainTableUtils.refreshTable();
-                currentDownloadings.stream()
-                        .filter(c -> c.equals(downloadModel))
-                        .findAny()
-                        .ifPresent(currentDownloadings::remove);
+                currentDownloadings.remove(downloadModel);
                 Platform.runLater(() -> FxUtils.newDetailsStage(downloadModel));
                 return true;
             }
@@ -65,8 +70,6 @@ public abstract class DownloadTask extends Task<Long> {
         return false;
     }
 
-    public abstract void setExecutor(ExecutorService executor);
-
     public abstract boolean isPaused();
 
     public abstract void setBlocking(boolean blocking);
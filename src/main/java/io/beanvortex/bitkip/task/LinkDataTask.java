@@ -1,21 +1,32 @@
 package io.beanvortex.bitkip.task;
 
 import io.beanvortex.bitkip.controllers.BatchDownload;
+import io.beanvortex.bitkip.utils.AppExecutors;
 import io.beanvortex.bitkip.utils.DownloadUtils;
+import io.beanvortex.bitkip.utils.UrlProbeCache;
 import io.beanvortex.bitkip.models.LinkModel;
 import javafx.concurrent.Task;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
-import java.net.HttpURLConnection;
 import java.util.List;
 
 import static io.beanvortex.bitkip.config.AppConfigs.log;
 
+/**
+ * Links are probed in parallel, at most {@link #CONCURRENCY} at a time, and each one is emitted as soon as
+ * its probe is done. A link that can not be probed is skipped and others go on
+ */
 public class LinkDataTask extends Task<Flux<LinkModel>> {
 
+    static final int CONCURRENCY = 16;
+    private static final Scheduler scheduler = Schedulers.fromExecutor(AppExecutors.DOWNLOADS);
+
     private final List<LinkModel> links;
-    private boolean cancel;
+    private volatile boolean cancel;
 
     public LinkDataTask(List<LinkModel> links) {
         this.links = links;
@@ -23,31 +34,29 @@ public class LinkDataTask extends Task<Flux<LinkModel>> {
 
     @Override
     protected Flux<LinkModel> call() {
-        return Flux.create(fluxSink -> {
-            for (var lm : links) {
-                if (cancel)
-                    break;
-                HttpURLConnection connection;
-                try {
-                    connection = DownloadUtils.connect(lm.getUri());
-                } catch (IOException e) {
-                    log.error(e.getMessage());
-                    break;
-                }
-                var uri = lm.getUri();
-                var fileSize = DownloadUtils.getFileSize(connection);
-                var fileName = DownloadUtils.extractFileName(uri, connection);
-                var secondaryQueue = BatchDownload.getSecondaryQueueByFileName(fileName);
-                var path = DownloadUtils.determineLocation(fileName);
-                lm.setName(DownloadUtils.getNewFileNameIfExists(fileName, lm.getPath()));
-                lm.setSize(fileSize);
-                lm.setPath(path);
-                lm.getQueues().add(secondaryQueue);
-                lm.setResumable(DownloadUtils.canResume(connection));
-                fluxSink.next(lm);
-            }
-            fluxSink.complete();
-        });
+        // links are taken one by one as probes finish, so cancelling stops the ones which are not started
+        return Flux.fromIterable(links)
+                .takeWhile(lm -> !cancel)
+                .flatMap(lm -> Mono.fromCallable(() -> probe(lm))
+                        .subscribeOn(scheduler)
+                        .onErrorResume(e -> {
+                            log.warn("Could not fetch data of %s: %s".formatted(lm.getUri(), e.getMessage()));
+                            return Mono.empty();
+                        }), CONCURRENCY);
+    }
+
+    private static LinkModel probe(LinkModel lm) throws IOException {
+        // links which are added are started with this probe
+        var probe = UrlProbeCache.SHARED.get(lm.getUri());
+        var fileName = probe.fileName();
+        var secondaryQueue = BatchDownload.getSecondaryQueueByFileName(fileName);
+        var path = DownloadUtils.determineLocation(fileName);
+        lm.setName(DownloadUtils.getNewFileNameIfExists(fileName, lm.getPath()));
+        lm.setSize(probe.metadata().size());
+        lm.setPath(path);
+        lm.getQueues().add(secondaryQueue);
+        lm.setResumable(probe.metadata().resumable());
+        return lm;
     }
 
     public void setCancel(boolean cancel) {
@@ -0,0 +1,137 @@
+package io.beanvortex.bitkip.task;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.beanvortex.bitkip.config.AppConfigs.log;
+
+/**
+ * Urls that serve the same file for one download.
+ * Each connection takes the mirror with the most speed per connection, so ranges are spread across mirrors
+ * in proportion to their speed. Mirrors that keep failing or fall far behind the fastest one are dropped,
+ * the last one is always kept
+ */
+public class MirrorPool {
+
+    // failures in a row before a mirror is dropped
+    private static final int MAX_FAILURES = 3;
+    // a mirror slower than this part of the fastest one is dropped
+    private static final double SLOW_RATIO = 0.25;
+    // samples of a mirror before its speed is trusted
+    private static final int SETTLE_SAMPLES = 5;
+    private static final double SMOOTHING = 0.3;
+
+    public static class Mirror {
+        private final String url;
+        private final LongAdder bytes = new LongAdder();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        // bytes per sample of each connection
+        private volatile double speed;
+        private int samples;
+        private volatile boolean dropped;
+
+        Mirror(String url) {
+            this.url = url;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public boolean isDropped() {
+            return dropped;
+        }
+
+        public void onRead(long read) {
+            bytes.add(read);
+            failures.set(0);
+        }
+
+        private boolean isSettled() {
+            return samples >= SETTLE_SAMPLES;
+        }
+    }
+
+    private final List<Mirror> mirrors = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param urls first one is the original url of download
+     */
+    public MirrorPool(List<String> urls) {
+        urls.forEach(url -> mirrors.add(new Mirror(url)));
+    }
+
+    public int size() {
+        return mirrors.size();
+    }
+
+    /**
+     * Mirrors which are not measured yet are picked as if they were the fastest, so they get measured
+     */
+    public synchronized Mirror acquire() {
+        var fastest = fastestSpeed();
+        var mirror = mirrors.stream()
+                .filter(m -> !m.dropped)
+                .max(Comparator.comparingDouble((Mirror m) ->
+                                (m.isSettled() ? m.speed : Math.max(fastest, 1)) / (m.active.get() + 1))
+                        .thenComparingInt(m -> -m.active.get()))
+                .orElse(mirrors.get(0));
+        mirror.active.incrementAndGet();
+        return mirror;
+    }
+
+    public void release(Mirror mirror) {
+        mirror.active.decrementAndGet();
+    }
+
+    /**
+     * @return whether there is another mirror that the failed range can be fetched from
+     */
+    public synchronized boolean onFailure(Mirror mirror, Exception e) {
+        if (mirror.failures.incrementAndGet() >= MAX_FAILURES)
+            drop(mirror, "failed %d times: %s".formatted(MAX_FAILURES, e.getMessage()));
+        return mirrors.stream().anyMatch(m -> m != mirror && !m.dropped);
+    }
+
+    /**
+     * Updates speed of mirrors with the bytes read since the previous sample, and drops the slow ones
+     */
+    public synchronized void sample() {
+        for (var mirror : mirrors) {
+            var read = mirror.bytes.sumThenReset();
+            var active = mirror.active.get();
+            // a mirror without connections has no speed to measure
+            if (mirror.dropped || active == 0)
+                continue;
+            var speed = (double) read / active;
+            mirror.speed = mirror.samples == 0 ? speed : SMOOTHING * speed + (1 - SMOOTHING) * mirror.speed;
+            mirror.samples++;
+        }
+        var fastest = fastestSpeed();
+        for (var mirror : mirrors)
+            if (!mirror.dropped && mirror.isSettled() && mirror.speed < fastest * SLOW_RATIO)
+                drop(mirror, "too slow");
+    }
+
+    private double fastestSpeed() {
+        return mirrors.stream()
+                .filter(m -> !m.dropped && m.isSettled())
+                .mapToDouble(m -> m.speed)
+                .max().orElse(0);
+    }
+
+    private long liveCount() {
+        return mirrors.stream().filter(m -> !m.dropped).count();
+    }
+
+    private void drop(Mirror mirror, String reason) {
+        if (mirror.dropped || liveCount() == 1)
+            return;
+        mirror.dropped = true;
+        log.warn("Mirror dropped, %s: %s".formatted(reason, mirror.url));
+    }
+}
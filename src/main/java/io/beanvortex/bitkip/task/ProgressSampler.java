@@ -0,0 +1,43 @@
+package io.beanvortex.bitkip.task;
+
+import io.beanvortex.bitkip.utils.AppExecutors;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static io.beanvortex.bitkip.config.AppConfigs.log;
+
+/**
+ * One periodic task on {@link AppExecutors#TIMER} for the whole application that turns byte counters
+ * of running downloads into their progress and speed once a second
+ */
+public class ProgressSampler {
+
+    private static final Set<DownloadTask> tasks = ConcurrentHashMap.newKeySet();
+    private static boolean started;
+
+    public static synchronized void register(DownloadTask task) {
+        tasks.add(task);
+        if (!started) {
+            started = true;
+            AppExecutors.TIMER.scheduleAtFixedRate(ProgressSampler::sampleAll,
+                    DownloadTask.ONE_SEC, DownloadTask.ONE_SEC, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public static void unregister(DownloadTask task) {
+        tasks.remove(task);
+    }
+
+    private static void sampleAll() {
+        for (var task : tasks) {
+            try {
+                task.sample();
+            } catch (Exception e) {
+                // a failing download must not stop sampling of others
+                log.error(e.getMessage());
+            }
+        }
+    }
+}
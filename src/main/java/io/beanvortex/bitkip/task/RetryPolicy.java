@@ -0,0 +1,117 @@
+package io.beanvortex.bitkip.task;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+import static io.beanvortex.bitkip.config.AppConfigs.log;
+
+/**
+ * Decides how long a failed request waits before it is sent again.
+ * Delays grow exponentially and are fully jittered, so connections that fail together do not retry together.
+ * Failures to connect and resets in the middle of a transfer have separate budgets,
+ * a reset after some bytes starts the backoff again, since the connection was working
+ */
+public class RetryPolicy {
+
+    private static final long BASE_DELAY = 500;
+    private static final long MAX_DELAY = 30_000;
+    // Retry-After is honored up to this
+    private static final long MAX_RETRY_AFTER = 5 * 60_000;
+    private static final long SLEEP_SLICE = 100;
+
+    private static final LongAdder connectRetries = new LongAdder();
+    private static final LongAdder transferRetries = new LongAdder();
+    private static final LongAdder refusedRetries = new LongAdder();
+    private static final LongAdder givenUp = new LongAdder();
+
+    private final int connectBudget;
+    private final int transferBudget;
+    private final boolean unlimited;
+    private int connectFailures;
+    private int transferResets;
+    private int attempt;
+
+    /**
+     * @param unlimited retry forever, budgets are ignored
+     */
+    public RetryPolicy(int connectBudget, int transferBudget, boolean unlimited) {
+        this.connectBudget = connectBudget;
+        this.transferBudget = transferBudget;
+        this.unlimited = unlimited;
+    }
+
+    /**
+     * @return delay before next try, or -1 if budget of connect failures is spent
+     */
+    public long onConnectFailure() {
+        if (!unlimited && ++connectFailures > connectBudget)
+            return giveUp();
+        connectRetries.increment();
+        return backoff();
+    }
+
+    /**
+     * @return delay before next try, or -1 if budget of resets is spent
+     */
+    public long onTransferReset() {
+        if (!unlimited && ++transferResets > transferBudget)
+            return giveUp();
+        transferRetries.increment();
+        attempt = 0;
+        return backoff();
+    }
+
+    /**
+     * Refusals are counted as connect failures
+     *
+     * @param retryAfter milliseconds that server asked to wait, 0 if it did not
+     * @return delay before next try, or -1 if budget of connect failures is spent
+     */
+    public long onRefused(long retryAfter) {
+        if (!unlimited && ++connectFailures > connectBudget)
+            return giveUp();
+        refusedRetries.increment();
+        var delay = backoff();
+        return retryAfter > 0 ? Math.min(retryAfter, MAX_RETRY_AFTER) + delay / 4 : delay;
+    }
+
+    private long backoff() {
+        var ceiling = Math.min(MAX_DELAY, BASE_DELAY << Math.min(attempt++, 16));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private long giveUp() {
+        givenUp.increment();
+        return -1;
+    }
+
+    /**
+     * Sleeps in slices, so a paused download does not wait for the whole delay
+     *
+     * @return false if it was stopped
+     */
+    public static boolean sleep(long delay, BooleanSupplier stopped) {
+        var end = System.currentTimeMillis() + delay;
+        try {
+            long left;
+            while ((left = end - System.currentTimeMillis()) > 0) {
+                if (stopped.getAsBoolean())
+                    return false;
+                Thread.sleep(Math.min(left, SLEEP_SLICE));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return !stopped.getAsBoolean();
+    }
+
+    /**
+     * Logs the retries of all downloads since start, next to stats of the shared pools on exit
+     */
+    public static void logStats() {
+        log.info("Retries{connect=%d, transfer=%d, refused=%d, givenUp=%d}".formatted(
+                connectRetries.sum(), transferRetries.sum(), refusedRetries.sum(), givenUp.sum()));
+    }
+}
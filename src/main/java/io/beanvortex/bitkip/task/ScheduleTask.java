@@ -1,5 +1,7 @@
 package io.beanvortex.bitkip.task;
 
+import io.beanvortex.bitkip.utils.AppExecutors;
+import io.beanvortex.bitkip.utils.BandwidthLimiter;
 import io.beanvortex.bitkip.utils.FxUtils;
 import io.beanvortex.bitkip.utils.MenuUtils;
 import io.beanvortex.bitkip.models.QueueModel;
@@ -7,27 +9,38 @@ import io.beanvortex.bitkip.models.ScheduleModel;
 import io.beanvortex.bitkip.models.StartedQueue;
 import io.beanvortex.bitkip.repo.ScheduleRepo;
 import io.beanvortex.bitkip.utils.QueueUtils;
-import io.beanvortex.bitkip.utils.SideUtils;
+import io.beanvortex.bitkip.utils.WallClockScheduler;
+import javafx.application.Platform;
 import javafx.scene.control.Label;
 
-import java.time.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import static com.sun.jna.Platform.isLinux;
 import static com.sun.jna.Platform.isMac;
 import static io.beanvortex.bitkip.config.AppConfigs.*;
+import static io.beanvortex.bitkip.config.observers.QueueSubject.addAllQueues;
 import static io.beanvortex.bitkip.config.observers.QueueSubject.getQueues;
 
 
 public class ScheduleTask {
 
+    // how late a trigger may still start or stop its queue
+    private static final Duration TRIGGER_GRACE = Duration.ofSeconds(10);
+    // integer represents queueModelId
+    private static final Map<Integer, List<WallClockScheduler.Trigger>> speedTriggers = new ConcurrentHashMap<>();
+
     public static void scheduleQueues() {
         getQueues().forEach(ScheduleTask::schedule);
     }
 
     public static void schedule(QueueModel queue) {
         var schedule = queue.getSchedule();
+        scheduleSpeedProfile(queue);
         var isThereSchedule = currentSchedules.keySet().stream().anyMatch(id -> id == schedule.getId());
         if (validateScheduleModel(schedule, isThereSchedule)) return;
 
@@ -52,11 +65,35 @@ public class ScheduleTask {
         }
     }
 
+    /**
+     * At the start of each period of the speed profile, its speed is applied to running downloads of the queue
+     * without pausing them. A missed start still applies, since the speed is looked up for the current time
+     */
+    private static void scheduleSpeedProfile(QueueModel queue) {
+        var previous = speedTriggers.remove(queue.getId());
+        if (previous != null)
+            previous.forEach(WallClockScheduler.Trigger::cancel);
+        BandwidthLimiter.updateQueueRate(queue);
+        var schedule = queue.getSchedule();
+        var profile = schedule.getSpeedProfile();
+        if (!schedule.isEnabled() || profile == null || profile.isEmpty())
+            return;
+        Runnable apply = () -> {
+            log.info("Speed of %s is changed by its profile".formatted(queue.getName()));
+            BandwidthLimiter.updateQueueRate(queue);
+        };
+        var triggers = profile.periods().stream()
+                .map(period -> AppExecutors.SCHEDULER.schedule(
+                        WallClockScheduler.Recurrence.onDays(period.from(), ScheduleRepo.DAYS),
+                        TRIGGER_GRACE, apply, apply))
+                .toList();
+        speedTriggers.put(queue.getId(), triggers);
+    }
+
     private static void startSchedule(StartedQueue startedQueue) {
         var queue = startedQueue.queue();
         Runnable run = () -> {
             log.info("Start scheduler triggered for " + queue.toStringModel());
-            if (isSchedulerNotTriggeredOnTime("Start", queue)) return;
             QueueUtils.startQueue(startedQueue, true);
         };
         createSchedule(run, queue, false);
@@ -66,103 +103,64 @@ public class ScheduleTask {
         var queue = startedQueue.queue();
         Runnable run = () -> {
             log.info("Stop scheduler triggered for " + queue.toStringModel());
-            if (isSchedulerNotTriggeredOnTime("Stop", queue)) return;
             QueueUtils.stopQueue(startedQueue);
         };
         createSchedule(run, queue, true);
     }
 
-    private static boolean isSchedulerNotTriggeredOnTime(String mode, QueueModel queue) {
+    /**
+     * Once schedule that is missed, e.g. when the system was suspended at its time, will not come again
+     */
+    private static void onMissed(String mode, QueueModel queue) {
         var schedule = queue.getSchedule();
-        var startDate = schedule.getStartDate();
-        var desiredTime = schedule.getStartTime().toSecondOfDay();
-        if (mode.equals("Stop"))
-            desiredTime = schedule.getStopTime().toSecondOfDay();
-        var nowTime = LocalTime.now().toSecondOfDay();
-        // maximum 10 seconds, desiredTime or nowTime can be different from each other
-        var isDesiredTimeNotOK = Math.abs(desiredTime - nowTime) > 10;
-        var isOnceDownloadNotOK = schedule.isOnceDownload() && (!LocalDate.now().equals(startDate) || isDesiredTimeNotOK);
-        var isDayOfWeekNotOk = !schedule.isOnceDownload() && (!schedule.getDays().contains(LocalDate.now().getDayOfWeek())
-                || isDesiredTimeNotOK);
-        if (isOnceDownloadNotOK || isDayOfWeekNotOk) {
-            if (isOnceDownloadNotOK){
-                queue.getSchedule().setEnabled(false);
-                SideUtils.changeScheduledQueueIcon(queue);
-            }
-            log.info(mode + " scheduler triggered on a wrong date or time for %s. Rescheduling all schedules... "
-                    .formatted(queue.getName()));
-            scheduleQueues();
-            return true;
-        }
-        return false;
+        log.info(mode + " scheduler has missed its time for " + queue.getName());
+        if (!schedule.isOnceDownload() || !schedule.isEnabled())
+            return;
+        // the other trigger of this schedule has nothing to start or stop anymore
+        var sm = currentSchedules.getOrDefault(schedule.getId(), schedule);
+        if (sm.getStartScheduler() != null)
+            sm.getStartScheduler().cancel();
+        if (sm.getStopScheduler() != null)
+            sm.getStopScheduler().cancel();
+        schedule.setEnabled(false);
+        ScheduleRepo.updateScheduleEnabled(schedule.getId(), schedule.isEnabled());
+        var updatedQueues = getQueues().stream()
+                .peek(q -> {
+                    if (q.equals(queue))
+                        q.setSchedule(schedule);
+                }).toList();
+        // side tree shows the scheduled icon until queues are added again
+        Platform.runLater(() -> addAllQueues(updatedQueues));
     }
 
     private static void createSchedule(Runnable run, QueueModel queue, boolean isStop) {
         var schedule = queue.getSchedule();
-        var scheduler = Executors.newScheduledThreadPool(1);
-
-        if (schedule.isOnceDownload()) {
-            var initialDelay = calculateOnceInitialDelay(isStop, schedule);
-            var firstTriggerMsg = "Once start scheduler will trigger after ";
-            if (isStop) {
-                schedule.setStopScheduler(scheduler);
-                firstTriggerMsg = "Once stop scheduler will trigger after ";
-            } else
-                schedule.setStartScheduler(scheduler);
-            firstTriggerMsg += TimeUnit.MILLISECONDS.toMinutes(initialDelay) + " minutes :" + queue.toStringModel();
-            log.info(firstTriggerMsg);
-            scheduler.schedule(run, initialDelay, TimeUnit.MILLISECONDS);
-        } else {
-            var specifiedTime = schedule.getStartTime();
-            var firstTriggerMsg = "Daily start scheduler will trigger after ";
-
-            if (isStop) {
-                schedule.setStopScheduler(scheduler);
-                firstTriggerMsg = "Daily stop scheduler will trigger after ";
-                specifiedTime = schedule.getStopTime();
-            } else
-                schedule.setStartScheduler(scheduler);
-
-            var initialDelay = calculateDailyInitialDelay(specifiedTime);
-            firstTriggerMsg += TimeUnit.MILLISECONDS.toMinutes(initialDelay) + " minutes :" + queue.toStringModel();
-            log.info(firstTriggerMsg);
-
-            scheduler.scheduleAtFixedRate(run, initialDelay, TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
-        }
+        var mode = isStop ? "Stop" : "Start";
+        var trigger = AppExecutors.SCHEDULER.schedule(recurrenceOf(schedule, isStop), TRIGGER_GRACE,
+                run, () -> onMissed(mode, queue));
+        if (isStop)
+            schedule.setStopScheduler(trigger);
+        else
+            schedule.setStartScheduler(trigger);
+        log.info("%s %s scheduler will trigger at %s :%s".formatted(schedule.isOnceDownload() ? "Once" : "Daily",
+                mode.toLowerCase(), trigger.getNext(), queue.toStringModel()));
     }
 
-    private static long calculateOnceInitialDelay(boolean isStop, ScheduleModel schedule) {
-        var startDate = schedule.getStartDate();
+    /**
+     * Stop time before start time belongs to the day after start
+     */
+    static WallClockScheduler.Recurrence recurrenceOf(ScheduleModel schedule, boolean isStop) {
         var startTime = schedule.getStartTime();
-        var dateTime = LocalDateTime.of(startDate, startTime);
-        if (isStop) {
-            var stopTime = schedule.getStopTime();
-            if (stopTime.isBefore(startTime))
-                startDate = startDate.plusDays(1);
-            dateTime = LocalDateTime.of(startDate, stopTime);
-        }
-        var zone = ZoneId.systemDefault();
-        var zonedDateTime = dateTime.atZone(zone);
-        var duration = Duration.between(ZonedDateTime.now(), zonedDateTime);
-        return Math.max(duration.toMillis(), 0);
-    }
-
-    private static long calculateDailyInitialDelay(LocalTime specifiedTime) {
-        var nowTime = LocalTime.now();
-        // today
-        if (specifiedTime.isAfter(nowTime)) {
-            var zone = ZoneId.systemDefault();
-            var zonedDateTime = specifiedTime.atDate(LocalDate.now()).atZone(zone);
-            var duration = Duration.between(ZonedDateTime.now(), zonedDateTime);
-            return Math.max(duration.toMillis(), 0);
-        }
-        // next day
-        else {
-            var zone = ZoneId.systemDefault();
-            var zonedDateTime = specifiedTime.atDate(LocalDate.now().plusDays(1)).atZone(zone);
-            var duration = Duration.between(ZonedDateTime.now(), zonedDateTime);
-            return Math.max(duration.toMillis(), 0);
+        var time = isStop ? schedule.getStopTime() : startTime;
+        var nextDay = isStop && time.isBefore(startTime);
+        if (schedule.isOnceDownload()) {
+            var date = nextDay ? schedule.getStartDate().plusDays(1) : schedule.getStartDate();
+            return WallClockScheduler.Recurrence.once(LocalDateTime.of(date, time));
         }
+        var days = schedule.getDays();
+        if (nextDay)
+            days = days.stream().map(day -> day.plus(1)).collect(Collectors.toSet());
+        return WallClockScheduler.Recurrence.onDays(time, days);
     }
 
     private static boolean validateScheduleModel(ScheduleModel schedule, boolean isThereSchedule) {
@@ -170,9 +168,9 @@ public class ScheduleTask {
         var sm = currentSchedules.get(schedule.getId());
         if (!schedule.isEnabled()) {
             if (isThereSchedule) {
-                sm.getStartScheduler().shutdownNow();
+                sm.getStartScheduler().cancel();
                 if (sm.getStopScheduler() != null)
-                    sm.getStopScheduler().shutdownNow();
+                    sm.getStopScheduler().cancel();
                 currentSchedules.remove(sm.getId());
             }
             return true;
@@ -185,8 +183,8 @@ public class ScheduleTask {
                     return true;
                 }
             }
-            if (sm != null && sm.getStartScheduler() != null) sm.getStartScheduler().shutdownNow();
-            if (sm != null && sm.getStopScheduler() != null) sm.getStopScheduler().shutdownNow();
+            if (sm != null && sm.getStartScheduler() != null) sm.getStartScheduler().cancel();
+            if (sm != null && sm.getStopScheduler() != null) sm.getStopScheduler().cancel();
         }
         return false;
     }
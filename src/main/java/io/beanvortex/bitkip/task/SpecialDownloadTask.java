@@ -1,12 +1,21 @@
 package io.beanvortex.bitkip.task;
 
 import io.beanvortex.bitkip.controllers.DetailsController;
+import io.beanvortex.bitkip.exceptions.ServerRefusedException;
+import io.beanvortex.bitkip.models.DownloadMetadata;
 import io.beanvortex.bitkip.models.DownloadModel;
 import io.beanvortex.bitkip.models.DownloadStatus;
+import io.beanvortex.bitkip.models.HashAlgorithm;
 import io.beanvortex.bitkip.repo.DownloadsRepo;
+import io.beanvortex.bitkip.utils.BandwidthLimiter;
+import io.beanvortex.bitkip.utils.ConnectionGovernor;
+import io.beanvortex.bitkip.utils.DownloadAdmission;
 import io.beanvortex.bitkip.utils.DownloadOpUtils;
 import io.beanvortex.bitkip.utils.DownloadUtils;
+import io.beanvortex.bitkip.utils.HashUtils;
+import io.beanvortex.bitkip.utils.HttpClientUtils;
 import io.beanvortex.bitkip.utils.IOUtils;
+import io.beanvortex.bitkip.utils.StreamingDigest;
 import javafx.application.Platform;
 import org.controlsfx.control.Notifications;
 
@@ -14,6 +23,10 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
@@ -22,7 +35,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
 import java.time.LocalDateTime;
-import java.util.concurrent.ExecutorService;
+import java.util.Optional;
 
 import static io.beanvortex.bitkip.config.AppConfigs.*;
 
@@ -30,13 +43,15 @@ import static io.beanvortex.bitkip.config.AppConfigs.*;
 public class SpecialDownloadTask extends DownloadTask {
     private boolean paused;
     private File file;
-    private ExecutorService executor;
+    // thread of a non-blocking download, interrupted to get out of a blocking read when it is paused
+    private Thread worker;
     private FileChannel fileChannel;
     private boolean blocking;
     private long fileSize;
     private String url;
-    private boolean isCalculating;
-    private long lastModified;
+    private long initialFileSize;
+    private DownloadMetadata metadata;
+    private boolean hashMismatched;
 
 
     /**
@@ -49,6 +64,8 @@ public class SpecialDownloadTask extends DownloadTask {
 
     @Override
     protected Long call() throws IOException {
+        if (!blocking)
+            worker = Thread.currentThread();
         try {
             url = downloadModel.getUri();
             file = new File(downloadModel.getFilePath());
@@ -58,10 +75,16 @@ public class SpecialDownloadTask extends DownloadTask {
             if (!parentFolder.exists())
                 parentFolder.mkdir();
             fileSize = downloadModel.getSize();
-            performDownloadInStream();
+            try (var ticket = DownloadAdmission.acquire(downloadModel, () -> paused)) {
+                if (ticket != null && !paused)
+                    performDownloadInStream();
+            }
         } catch (IOException e) {
             log.error(e.getMessage());
             this.pause();
+        } catch (InterruptedException e) {
+            // worker is interrupted when it is paused while waiting for admission
+            log.info("Paused while waiting for admission: " + downloadModel);
         }
         return IOUtils.getFileSize(file);
     }
@@ -70,34 +93,45 @@ public class SpecialDownloadTask extends DownloadTask {
         InputStream i = null;
         ReadableByteChannel rbc = null;
         FileOutputStream fos = null;
+        ConnectionGovernor.Permit permit = null;
         var notResumableOnly = fileSize > 0;
         try {
-            var con = DownloadUtils.connect(url);
-            var con2 = DownloadUtils.connect(url);
-            lastModified = con2.getLastModified();
-            con2.disconnect();
-            con.setRequestProperty("User-Agent", userAgent);
+            permit = ConnectionGovernor.acquire(url, downloadModel.getId(), () -> paused);
+            if (permit == null)
+                return;
+            var con = openConnection();
             i = con.getInputStream();
+            metadata = DownloadUtils.readMetadata(con);
+            downloadModel.setMetadata(metadata);
             rbc = Channels.newChannel(i);
 
-            fos = new FileOutputStream(file, file.exists());
+            // a corrupted file can not be continued, it is downloaded again
+            fos = new FileOutputStream(file, file.exists() && !HashUtils.isMismatched(downloadModel));
             fileChannel = fos.getChannel();
+            initialFileSize = fileChannel.size();
             if (!notResumableOnly)
                 updateProgress(0, 1);
-            else
-                calculateSpeedAndProgress();
+            ProgressSampler.register(this);
 
+            var queueBucket = BandwidthLimiter.findQueueBucket(downloadModel);
+            // appended bytes of a previous try are not hashed
+            var digest = initialFileSize == 0 ? prepareDigest() : null;
             var buffer = ByteBuffer.allocate(8192);
-            while (rbc.read(buffer) != -1) {
+            int read;
+            while ((read = rbc.read(buffer)) != -1) {
                 buffer.flip();
+                if (digest != null)
+                    digest.offer(downloadedBytes.sum(), buffer.duplicate());
                 fileChannel.write(buffer);
-                if (!notResumableOnly)
-                    updateValue(fileChannel.position());
+                downloadedBytes.add(read);
                 buffer.clear();
+                BandwidthLimiter.acquire(read, null, queueBucket);
             }
 
             var size = fileChannel.size();
             downloadModel.setSize(size);
+            if (digest != null && digest.getCursor() == size)
+                hashMismatched = !HashUtils.storeAndVerify(downloadModel, digest.getValue());
 
             if (!notResumableOnly)
                 DownloadsRepo.updateDownloadProperty(DownloadsRepo.COL_SIZE, String.valueOf(size), downloadModel.getId());
@@ -109,7 +143,11 @@ public class SpecialDownloadTask extends DownloadTask {
                     .title("Couldn't download file")
                     .text(e.getMessage())
                     .showError());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } finally {
+            if (permit != null)
+                permit.close();
             if (fileChannel != null)
                 fileChannel.close();
             if (fos != null)
@@ -121,42 +159,65 @@ public class SpecialDownloadTask extends DownloadTask {
         }
     }
 
-    private void calculateSpeedAndProgress() {
-        if (isCalculating)
-            return;
-        executor.submit(() -> {
-            Thread.currentThread().setName("calculator: " + Thread.currentThread().getName());
+    /**
+     * Only connecting is retried, a stream which is not resumable can not continue after a reset
+     */
+    private HttpURLConnection openConnection() throws IOException {
+        var retryPolicy = new RetryPolicy(downloadRetryCount, 0, false);
+        while (true) {
             try {
-                isCalculating = true;
-                while (!paused) {
-                    Thread.sleep(ONE_SEC);
-                    var currentFileSize = IOUtils.getFileSize(file);
-                    updateProgress(currentFileSize, fileSize);
-                    updateValue(currentFileSize);
+                var con = DownloadUtils.connect(url);
+                con.setRequestProperty("User-Agent", userAgent);
+                var responseCode = con.getResponseCode();
+                if (responseCode == 429 || responseCode == 503) {
+                    var retryAfter = HttpClientUtils.parseRetryAfter(con.getHeaderField("Retry-After"));
+                    con.disconnect();
+                    throw new ServerRefusedException("Server refused a connection of %s: %d"
+                            .formatted(downloadModel.getName(), responseCode), retryAfter);
                 }
-                isCalculating = false;
-
-            } catch (InterruptedException ignore) {
-            } catch (IOException e) {
-                log.error(e.getMessage());
+                return con;
+            } catch (SocketTimeoutException | UnknownHostException | SocketException | ServerRefusedException e) {
+                var delay = e instanceof ServerRefusedException refused ?
+                        retryPolicy.onRefused(refused.getRetryAfter()) : retryPolicy.onConnectFailure();
+                if (delay < 0 || !RetryPolicy.sleep(delay, () -> paused))
+                    throw e;
+                log.warn("Connecting again to %s: %s".formatted(downloadModel.getName(), e.getMessage()));
             }
-        });
+        }
+    }
+
+    private StreamingDigest prepareDigest() {
+        if (downloadModel.getExpectedHash() == null && metadata.hash() != null) {
+            downloadModel.setExpectedHash(metadata.hash());
+            DownloadsRepo.updateDownloadExpectedHash(downloadModel);
+        }
+        var expectedHash = downloadModel.getExpectedHash();
+        return new StreamingDigest(expectedHash != null ? HashUtils.algorithmOf(expectedHash) : HashAlgorithm.SHA_256);
+    }
+
+    @Override
+    protected void sample() {
+        if (paused)
+            return;
+        var currentFileSize = initialFileSize + downloadedBytes.sum();
+        if (fileSize > 0)
+            updateProgress(currentFileSize, fileSize);
+        updateValue(currentFileSize);
     }
 
 
     @Override
     protected void succeeded() {
+        ProgressSampler.unregister(this);
         try {
             if (fileChannel != null)
                 fileChannel.close();
-            var dmOpt = currentDownloadings.stream()
-                    .filter(c -> c.equals(downloadModel))
-                    .findFirst();
+            var dmOpt = Optional.ofNullable(currentDownloadings.find(downloadModel));
             if (dmOpt.isPresent()) {
                 var download = dmOpt.get();
                 download.setDownloadStatus(DownloadStatus.Paused);
                 downloadModel.setDownloadStatus(DownloadStatus.Paused);
-                if (file.exists() && IOUtils.getFileSize(file) == downloadModel.getSize()) {
+                if (!hashMismatched && file.exists() && IOUtils.getFileSize(file) == downloadModel.getSize()) {
                     log.info("File successfully downloaded: " + download);
                     download.setCompleteDate(LocalDateTime.now());
                     download.setDownloadStatus(DownloadStatus.Completed);
@@ -165,25 +226,20 @@ public class SpecialDownloadTask extends DownloadTask {
                     download.setDownloaded(downloadModel.getSize());
                     updateProgress(1, 1);
                     DownloadsRepo.updateDownloadCompleteDate(download);
-                    openDownloadings.stream().filter(dc -> dc.getDownloadModel().equals(download))
-                            .findFirst().ifPresentOrElse(dc -> dc.onComplete(download),
+                    Optional.ofNullable(openDownloadings.get(download.getId()))
+                            .ifPresentOrElse(dc -> dc.onComplete(download),
                                     () -> {
                                         if (download.isShowCompleteDialog())
                                             DownloadOpUtils.openDetailsStage(download);
                                     });
                     if (download.isOpenAfterComplete())
                         DownloadOpUtils.openFile(downloadModel);
-                    if (lastModified == 0) {
-                        var con2 = DownloadUtils.connect(url);
-                        lastModified = con2.getLastModified();
-                        con2.disconnect();
-                        if (lastModified == 0)
-                            lastModified = System.currentTimeMillis();
-                    }
+                    var lastModified = metadata != null && metadata.lastModified() != 0 ?
+                            metadata.lastModified() : System.currentTimeMillis();
                     var fileTime = FileTime.fromMillis(lastModified);
                     Files.setLastModifiedTime(Path.of(download.getFilePath()), fileTime);
-                } else openDownloadings.stream().filter(dc -> dc.getDownloadModel().equals(download))
-                        .forEach(DetailsController::onPause);
+                } else Optional.ofNullable(openDownloadings.get(download.getId()))
+                        .ifPresent(DetailsController::onPause);
 
 
                 download.setDownloaded(IOUtils.getFileSize(file));
@@ -195,8 +251,8 @@ public class SpecialDownloadTask extends DownloadTask {
         } finally {
             currentDownloadings.remove(downloadModel);
             mainTableUtils.refreshTable();
-            if (executor != null && !blocking)
-                executor.shutdownNow();
+            if (worker != null && worker != Thread.currentThread())
+                worker.interrupt();
             System.gc();
             whenDone();
         }
@@ -217,11 +273,6 @@ public class SpecialDownloadTask extends DownloadTask {
         succeeded();
     }
 
-    @Override
-    public void setExecutor(ExecutorService executor) {
-        this.executor = executor;
-    }
-
     @Override
     public boolean isPaused() {
         return paused;
@@ -0,0 +1,90 @@
+package io.beanvortex.bitkip.task;
+
+import io.beanvortex.bitkip.models.Segment;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Watches the speed of segments which have a connection. A segment far below the median speed of the others
+ * is stalled, then the rest of its range is hedged by another connection, and if it is still stalled after that,
+ * its request is cancelled and sent again.
+ * Hedges and cancels are limited to a part of the requests of download, so a slow origin does not get flooded
+ */
+public class StallWatchdog {
+
+    // a segment slower than this part of the median is slow
+    private static final double STALL_RATIO = 0.2;
+    // samples a segment must be slow in a row before it is stalled
+    private static final int STALL_SAMPLES = 5;
+    // extra requests allowed for each request of download, besides the first one
+    private static final double BUDGET_RATIO = 0.1;
+
+    public enum Action {
+        HEDGE,
+        CANCEL
+    }
+
+    private static class Watch {
+        private long lastPosition;
+        private long speed;
+        private int slowSamples;
+        private boolean hedged;
+
+        private Watch(long position) {
+            lastPosition = position;
+        }
+    }
+
+    private final Map<Segment, Watch> watches = new HashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private int spent;
+
+    public void onRequest() {
+        requests.incrementAndGet();
+    }
+
+    /**
+     * @param active segments which have a connection now
+     * @return actions for stalled segments, as much as budget allows
+     */
+    public synchronized Map<Segment, Action> sample(Collection<Segment> active) {
+        watches.keySet().retainAll(active);
+        for (var segment : active) {
+            var watch = watches.computeIfAbsent(segment, s -> new Watch(s.getPosition()));
+            var position = segment.getPosition();
+            watch.speed = position - watch.lastPosition;
+            watch.lastPosition = position;
+        }
+        var actions = new LinkedHashMap<Segment, Action>();
+        if (watches.size() < 2)
+            return actions;
+        var median = median();
+        for (var entry : watches.entrySet()) {
+            var watch = entry.getValue();
+            if (median == 0 || watch.speed >= median * STALL_RATIO) {
+                watch.slowSamples = 0;
+                continue;
+            }
+            if (++watch.slowSamples < STALL_SAMPLES || spent >= budget())
+                continue;
+            actions.put(entry.getKey(), watch.hedged ? Action.CANCEL : Action.HEDGE);
+            watch.hedged = true;
+            watch.slowSamples = 0;
+            spent++;
+        }
+        return actions;
+    }
+
+    private long median() {
+        var speeds = watches.values().stream().mapToLong(w -> w.speed).sorted().toArray();
+        return speeds[speeds.length / 2];
+    }
+
+    private double budget() {
+        return 1 + requests.get() * BUDGET_RATIO;
+    }
+}
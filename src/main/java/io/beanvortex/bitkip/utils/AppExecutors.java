@@ -0,0 +1,152 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.config.AppConfigs;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.beanvortex.bitkip.config.AppConfigs.log;
+
+/**
+ * Executors shared by the whole application. Downloads and queues run on virtual threads, since they mostly
+ * block on network and disk, and all of them are carried by a bounded number of platform threads.
+ * Pools live as long as the application, tasks should stop their own work instead of shutting a pool down
+ */
+public class AppExecutors {
+
+    private static final int CPUS = Runtime.getRuntime().availableProcessors();
+
+    static {
+        // must be set before the first virtual thread is started, changes take effect after restart
+        var parallelism = AppConfigs.lessCpuIntensive ? Math.max(CPUS / 2, 1) : CPUS;
+        if (System.getProperty("jdk.virtualThreadScheduler.parallelism") == null)
+            System.setProperty("jdk.virtualThreadScheduler.parallelism", String.valueOf(parallelism));
+    }
+
+    /**
+     * Download tasks, their connections and finalization
+     */
+    public static final NamedExecutor DOWNLOADS = new NamedExecutor("download",
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("download-", 0).factory()));
+
+    /**
+     * Loops of started queues and actions triggered by schedules
+     */
+    public static final NamedExecutor QUEUES = new NamedExecutor("queue",
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("queue-", 0).factory()));
+
+    /**
+     * One platform thread for short periodic work, such as sampling progress of downloads and merges
+     * and closing reads that passed their deadline. Its tasks should hand anything longer to other pools
+     */
+    public static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, r -> {
+        var thread = new Thread(r, "timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * One timer thread for all schedules, triggered actions are handed to {@link #QUEUES}
+     */
+    public static final WallClockScheduler SCHEDULER = new WallClockScheduler("scheduler", Clock.systemDefaultZone(), QUEUES);
+
+    static {
+        // cancelled periodic tasks, such as progress of a finished merge, should not stay in the queue
+        TIMER.setRemoveOnCancelPolicy(true);
+        SCHEDULER.start();
+    }
+
+    public static List<NamedExecutor> getPools() {
+        return List.of(DOWNLOADS, QUEUES);
+    }
+
+    public static void logStats() {
+        getPools().forEach(pool -> log.info(pool.toString()));
+        log.info("Timer{tasks=%d, completed=%d}".formatted(TIMER.getTaskCount(), TIMER.getCompletedTaskCount()));
+        log.info(SCHEDULER.toString());
+    }
+
+    /**
+     * Counts tasks of a shared pool. Shutting it down is not allowed
+     */
+    public static class NamedExecutor extends AbstractExecutorService {
+
+        private final String name;
+        private final ExecutorService delegate;
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong active = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+
+        NamedExecutor(String name, ExecutorService delegate) {
+            this.name = name;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            submitted.incrementAndGet();
+            delegate.execute(() -> {
+                active.incrementAndGet();
+                try {
+                    command.run();
+                } finally {
+                    active.decrementAndGet();
+                    completed.incrementAndGet();
+                }
+            });
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getSubmitted() {
+            return submitted.get();
+        }
+
+        public long getActive() {
+            return active.get();
+        }
+
+        public long getCompleted() {
+            return completed.get();
+        }
+
+        @Override
+        public void shutdown() {
+            throw new UnsupportedOperationException("Shared pool can not be shut down: " + name);
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            throw new UnsupportedOperationException("Shared pool can not be shut down: " + name);
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "Pool{" +
+                    "name=" + name +
+                    ", submitted=" + submitted +
+                    ", active=" + active +
+                    ", completed=" + completed +
+                    '}';
+        }
+    }
+}
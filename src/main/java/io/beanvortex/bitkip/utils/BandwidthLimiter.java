@@ -0,0 +1,99 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.models.DownloadModel;
+import io.beanvortex.bitkip.models.QueueModel;
+
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static io.beanvortex.bitkip.config.AppConfigs.*;
+
+/**
+ * Limits downloaded bytes at three levels: all downloads, downloads of a started queue and a single download.
+ * A read is allowed when every level it belongs to allows it
+ */
+public class BandwidthLimiter {
+
+    private static final TokenBucket globalBucket = new TokenBucket(globalSpeedLimit);
+    // integer represents queueModelId
+    private static final Map<Integer, TokenBucket> queueBuckets = new ConcurrentHashMap<>();
+
+    public static void setGlobalRate(long rate) {
+        globalBucket.setRate(rate);
+    }
+
+    /**
+     * Queue limits are shared by all downloads of a queue which are started by it
+     */
+    public static TokenBucket getQueueBucket(QueueModel qm) {
+        return queueBuckets.computeIfAbsent(qm.getId(), id -> new TokenBucket(queueRate(qm)));
+    }
+
+    /**
+     * @return bucket of the first started queue that the download belongs to, or null if it was started by hand
+     */
+    public static TokenBucket findQueueBucket(DownloadModel dm) {
+        return startedQueues.stream()
+                .filter(sq -> dm.getQueues().contains(sq.queue()))
+                .findFirst()
+                .map(sq -> getQueueBucket(sq.queue()))
+                .orElse(null);
+    }
+
+    /**
+     * Applies the speed of the queue to its running downloads, called on boundaries of its speed profile too
+     */
+    public static void updateQueueRate(QueueModel qm) {
+        var bucket = queueBuckets.get(qm.getId());
+        if (bucket != null)
+            bucket.setRate(queueRate(qm));
+    }
+
+    /**
+     * Speed profile of an enabled schedule takes place of the speed of the queue
+     */
+    private static long queueRate(QueueModel qm) {
+        var schedule = qm.getSchedule();
+        if (schedule != null && schedule.isEnabled() && schedule.getSpeedProfile() != null) {
+            var rate = schedule.getSpeedProfile().rateAt(LocalTime.now());
+            if (rate != -1)
+                return rate;
+        }
+        return qm.getSpeed() == null ? 0 : IOUtils.getBytesFromString(qm.getSpeed());
+    }
+
+    /**
+     * @return the largest read that is worth doing at once under the given buckets
+     */
+    public static long maxRead(long bufferSize, TokenBucket downloadBucket, TokenBucket queueBucket) {
+        var max = Math.min(bufferSize, globalBucket.getCapacity());
+        if (downloadBucket != null)
+            max = Math.min(max, downloadBucket.getCapacity());
+        if (queueBucket != null)
+            max = Math.min(max, queueBucket.getCapacity());
+        return max;
+    }
+
+    /**
+     * Takes read bytes from every level and waits for the slowest one
+     *
+     * @param downloadBucket null if the download has no limit of its own
+     * @param queueBucket    null if the download is not started by a queue
+     */
+    public static void acquire(long bytes, TokenBucket downloadBucket, TokenBucket queueBucket) {
+        var waitNanos = globalBucket.reserve(bytes);
+        if (downloadBucket != null)
+            waitNanos = Math.max(waitNanos, downloadBucket.reserve(bytes));
+        if (queueBucket != null)
+            waitNanos = Math.max(waitNanos, queueBucket.reserve(bytes));
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package io.beanvortex.bitkip.utils;
+
+import java.net.URI;
+import java.util.function.BooleanSupplier;
+
+import static io.beanvortex.bitkip.config.AppConfigs.maxConnections;
+
+/**
+ * Every connection of all downloads takes a permit from here before it connects, so a host never gets
+ * more connections than {@link HostConcurrency} has learned it accepts, which is at most maxConnectionsPerHost,
+ * and the app never opens more than maxConnections.
+ * When no permit is free, connections wait in {@link FairLanes}, one lane per download
+ */
+public class ConnectionGovernor {
+
+    public static class Permit implements AutoCloseable {
+        private final FairLanes<String>.Grant grant;
+
+        private Permit(FairLanes<String>.Grant grant) {
+            this.grant = grant;
+        }
+
+        @Override
+        public void close() {
+            grant.release();
+        }
+    }
+
+    private static final FairLanes<String> lanes = new FairLanes<>((host, active, activeOfHost) ->
+            (maxConnections <= 0 || active < maxConnections) && activeOfHost < HostConcurrency.limitOf(host));
+
+    /**
+     * @param owner     id of the download that connection belongs to
+     * @param cancelled checked while waiting, e.g. when download is paused
+     * @return null if it was cancelled before a permit was free
+     */
+    public static Permit acquire(String url, int owner, BooleanSupplier cancelled) throws InterruptedException {
+        var grant = lanes.acquire(hostOf(url), owner, cancelled, null);
+        return grant == null ? null : new Permit(grant);
+    }
+
+    /**
+     * Caps may be changed from settings, new caps apply to next permits
+     */
+    public static void onLimitsChanged() {
+        lanes.onLimitsChanged();
+    }
+
+    static String hostOf(String url) {
+        try {
+            var host = URI.create(Validations.fixURIChars(url)).getHost();
+            return host == null ? url : host.toLowerCase();
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    public static int getActive() {
+        return lanes.getActive();
+    }
+}
@@ -0,0 +1,79 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.models.DownloadModel;
+
+import java.util.function.BooleanSupplier;
+
+import static io.beanvortex.bitkip.config.AppConfigs.log;
+import static io.beanvortex.bitkip.config.AppConfigs.maxActiveDownloads;
+import static io.beanvortex.bitkip.config.AppConfigs.maxConnections;
+
+/**
+ * Every download, started manually or by any started queue, takes a ticket from here before it opens a connection,
+ * so no more than maxActiveDownloads transfer at a time, however many queues are started together.
+ * Waiting downloads are grouped in {@link FairLanes}, one lane for each started queue and one for manual downloads.
+ * Connections of admitted downloads are capped by {@link ConnectionGovernor}
+ */
+public class DownloadAdmission {
+
+    /**
+     * Lane of downloads which are not started by a queue
+     */
+    public static final int MANUAL = -1;
+
+    public static class Ticket implements AutoCloseable {
+        private final FairLanes<Integer>.Grant grant;
+
+        private Ticket(FairLanes<Integer>.Grant grant) {
+            this.grant = grant;
+        }
+
+        @Override
+        public void close() {
+            grant.release();
+        }
+    }
+
+    // tickets are counted by lane, though only their total is capped
+    private static final FairLanes<Integer> lanes = new FairLanes<>((lane, active, activeOfLane) ->
+            maxActiveDownloads <= 0 || active < maxActiveDownloads);
+
+    /**
+     * @param cancelled checked while waiting, e.g. when download is paused
+     * @return null if it was cancelled before a ticket was free
+     */
+    public static Ticket acquire(DownloadModel dm, BooleanSupplier cancelled) throws InterruptedException {
+        return acquire(dm.getId(), QueueUtils.laneOf(dm), cancelled);
+    }
+
+    static Ticket acquire(int downloadId, int lane, BooleanSupplier cancelled) throws InterruptedException {
+        var grant = lanes.acquire(lane, lane, cancelled,
+                () -> log.info("Download %d is waiting for others to finish, %d downloads are active"
+                        .formatted(downloadId, lanes.getActive())));
+        return grant == null ? null : new Ticket(grant);
+    }
+
+    /**
+     * Cap may be changed from settings, a higher cap admits waiting downloads at once
+     */
+    public static void onLimitsChanged() {
+        lanes.onLimitsChanged();
+    }
+
+    /**
+     * @return connections a download starts with, so admitted downloads together fit in maxConnections
+     */
+    public static int connectionShare() {
+        if (maxConnections <= 0 || maxActiveDownloads <= 0)
+            return Integer.MAX_VALUE;
+        return Math.max(maxConnections / maxActiveDownloads, 1);
+    }
+
+    public static int getActive() {
+        return lanes.getActive();
+    }
+
+    public static int getWaiting() {
+        return lanes.getWaiting();
+    }
+}
@@ -0,0 +1,248 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.models.ByteRange;
+import io.beanvortex.bitkip.models.DownloadMetadata;
+import io.beanvortex.bitkip.models.Segment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.zip.CRC32C;
+
+import static io.beanvortex.bitkip.config.AppConfigs.log;
+
+/**
+ * Keeps the byte ranges of a download that are confirmed to be on disk, next to its temp files.
+ * Bytes are forced to disk before their range is written, so resume never trusts a torn or zero filled tail.
+ * Ranges of a try that did not close the journal, are checked against their checksum on resume.
+ * Written ranges are taken in a {@link Snapshot} while segments can not be split, the slow fsync is done after,
+ * so it does not hold back the connections of the download
+ */
+public class DownloadJournal {
+
+    public static final String EXTENSION = ".journal";
+    // at most one fsync of download files in this interval
+    private static final long SYNC_INTERVAL = 5000;
+    private static final String HEADER = "bitkip-journal 1";
+
+    /**
+     * Written ranges of segments at one moment, a snapshot older than the last written one is ignored
+     */
+    public record Snapshot(long sequence, List<ByteRange> ranges, Set<Path> files) {
+    }
+
+    private final Path path;
+    // confirmed ranges of previous tries
+    private final List<ByteRange> confirmed = new ArrayList<>();
+    private final Map<Path, FileChannel> channels = new HashMap<>();
+    private String eTag;
+    private long lastModified;
+    private boolean clean;
+    private volatile long lastSync;
+    private long snapshots;
+    private long lastWrittenSnapshot = -1;
+    private boolean closed;
+
+    public DownloadJournal(Path path) {
+        this.path = path;
+    }
+
+    public boolean exists() {
+        return Files.exists(path);
+    }
+
+    /**
+     * Reads confirmed ranges of previous tries. All of them are dropped if the file on server has changed since
+     *
+     * @param metadata metadata of this try, null if it could not be probed
+     */
+    public void load(DownloadMetadata metadata) throws IOException {
+        confirmed.clear();
+        var lines = Files.readAllLines(path);
+        if (lines.isEmpty() || !lines.get(0).equals(HEADER))
+            throw new IOException("Journal is corrupted: " + path);
+        for (var line : lines.subList(1, lines.size())) {
+            var values = line.split(" ");
+            switch (values[0]) {
+                case "etag" -> eTag = line.substring("etag ".length());
+                case "last_modified" -> lastModified = Long.parseLong(values[1]);
+                case "clean" -> clean = values[1].equals("true");
+                case "range" -> confirmed.add(new ByteRange(Long.parseLong(values[1]),
+                        Long.parseLong(values[2]), Long.parseLong(values[3])));
+            }
+        }
+        if (metadata != null && hasChanged(metadata)) {
+            log.warn("File on server has changed since last try, downloading from start: " + path);
+            confirmed.clear();
+        }
+        setValidator(metadata);
+    }
+
+    private boolean hasChanged(DownloadMetadata metadata) {
+        if (eTag != null && metadata.eTag() != null)
+            return !eTag.equals(metadata.eTag());
+        return lastModified != 0 && metadata.lastModified() != 0 && lastModified != metadata.lastModified();
+    }
+
+    public void setValidator(DownloadMetadata metadata) {
+        if (metadata == null)
+            return;
+        eTag = metadata.eTag();
+        lastModified = metadata.lastModified();
+    }
+
+    /**
+     * @return whether the previous try closed the journal, ranges of a crashed try should be verified
+     */
+    public boolean wasClean() {
+        return clean;
+    }
+
+    public List<ByteRange> getConfirmed() {
+        return Collections.unmodifiableList(confirmed);
+    }
+
+    /**
+     * Used for downloads which had part files before the journal, their sizes are trusted once
+     */
+    public void addConfirmed(ByteRange range) {
+        confirmed.add(range);
+    }
+
+    /**
+     * Drops confirmed ranges of which bytes on disk do not match their checksum
+     *
+     * @param fileOf file that holds a range
+     * @param offsetOf offset of the download that file begins at
+     */
+    public void verify(Function<ByteRange, Path> fileOf, ToLongFunction<ByteRange> offsetOf) {
+        confirmed.removeIf(range -> {
+            if (range.checksum() == ByteRange.UNKNOWN_CHECKSUM)
+                return false;
+            try {
+                var matches = checksumOf(fileOf.apply(range), range.start() - offsetOf.applyAsLong(range),
+                        range.length()) == range.checksum();
+                if (!matches)
+                    log.warn("Bytes %d-%d did not match the journal, downloading them again: %s"
+                            .formatted(range.start(), range.end(), path));
+                return !matches;
+            } catch (IOException e) {
+                return true;
+            }
+        });
+    }
+
+    private static long checksumOf(Path file, long position, long length) throws IOException {
+        var checksum = new CRC32C();
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < position + length)
+                return ByteRange.UNKNOWN_CHECKSUM;
+            var buffer = ByteBuffer.allocate(65_536);
+            var end = position + length;
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                var read = channel.read(buffer, position);
+                if (read == -1)
+                    break;
+                buffer.flip();
+                checksum.update(buffer);
+                position += read;
+            }
+        }
+        return checksum.getValue();
+    }
+
+    public boolean isSyncDue() {
+        return System.currentTimeMillis() - lastSync >= SYNC_INTERVAL;
+    }
+
+    /**
+     * Forces written bytes of segments to disk and then records them as confirmed.
+     * Bytes written after their range is taken are left for the next checkpoint
+     *
+     * @param clean true when download is stopping and no more bytes are written
+     */
+    public void checkpoint(List<Segment> segments, boolean clean) throws IOException {
+        checkpoint(snapshot(segments), clean);
+    }
+
+    /**
+     * Takes the written ranges of segments, which must not be split meanwhile. Cheap, nothing is forced to disk
+     */
+    public synchronized Snapshot snapshot(List<Segment> segments) {
+        var ranges = new ArrayList<>(confirmed);
+        var files = new HashSet<Path>();
+        for (var segment : segments) {
+            var range = segment.getWrittenRange();
+            if (range != null) {
+                ranges.add(range);
+                files.add(segment.getFile());
+            }
+        }
+        return new Snapshot(snapshots++, ranges, files);
+    }
+
+    /**
+     * Forces the files of a snapshot to disk and then records its ranges as confirmed.
+     * Does nothing when the journal is closed or a newer snapshot is already written
+     */
+    public synchronized void checkpoint(Snapshot snapshot, boolean clean) throws IOException {
+        if (closed || snapshot.sequence() < lastWrittenSnapshot)
+            return;
+        var ranges = snapshot.ranges();
+        for (var file : snapshot.files())
+            if (Files.exists(file))
+                channelOf(file).force(false);
+        var builder = new StringBuilder(HEADER).append('\n');
+        if (eTag != null)
+            builder.append("etag ").append(eTag).append('\n');
+        builder.append("last_modified ").append(lastModified).append('\n')
+                .append("clean ").append(clean).append('\n');
+        for (var range : ranges)
+            builder.append("range ").append(range.start()).append(' ')
+                    .append(range.end()).append(' ')
+                    .append(range.checksum()).append('\n');
+        var tempPath = Path.of(path + ".tmp");
+        try (var channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(builder.toString().getBytes()));
+            channel.force(true);
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lastSync = System.currentTimeMillis();
+        lastWrittenSnapshot = snapshot.sequence();
+    }
+
+    private FileChannel channelOf(Path file) throws IOException {
+        var channel = channels.get(file);
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(file, StandardOpenOption.WRITE);
+            channels.put(file, channel);
+        }
+        return channel;
+    }
+
+    public synchronized void close() {
+        closed = true;
+        for (var channel : channels.values()) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.error(e.getMessage());
+            }
+        }
+        channels.clear();
+    }
+
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+}
@@ -1,6 +1,5 @@
 package io.beanvortex.bitkip.utils;
 
-import io.beanvortex.bitkip.controllers.DetailsController;
 import io.beanvortex.bitkip.exceptions.DeniedException;
 import io.beanvortex.bitkip.models.DownloadModel;
 import io.beanvortex.bitkip.models.DownloadStatus;
@@ -22,7 +21,6 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
@@ -44,6 +42,8 @@ public class DownloadOpUtils {
     public static void triggerDownload(DownloadModel dm, long speed, long bytes, boolean resume, boolean blocking) throws ExecutionException, InterruptedException {
 
         try {
+            // metadata of a previous try may be stale
+            dm.setMetadata(null);
             Validations.fillNotFetchedData(dm);
             IOUtils.checkAvailableSpace(dm.getFilePath(), dm.getSize());
         } catch (IOException e) {
@@ -63,7 +63,9 @@ public class DownloadOpUtils {
             try {
                 if (dm.getSize() > 0)
                     bytes = dm.getSize();
-                downloadTask = new ChunksDownloadTask(dm, speed, bytes);
+                var chunksDownloadTask = new ChunksDownloadTask(dm, speed, bytes);
+                chunksDownloadTask.setHttpClientEngine(httpClientEngine);
+                downloadTask = chunksDownloadTask;
             } catch (DeniedException e) {
                 log.error(e.getMessage());
                 return;
@@ -87,20 +89,19 @@ public class DownloadOpUtils {
         downloadTask.setBlocking(blocking);
         dm.setDownloadTask(downloadTask);
         currentDownloadings.add(dm);
-        openDownloadings.stream().filter(dc -> dc.getDownloadModel().equals(dm))
-                .forEach(DetailsController::initDownloadListeners);
+        var details = openDownloadings.get(dm.getId());
+        if (details != null)
+            details.initDownloadListeners();
         if (!resume) {
             DownloadsRepo.insertDownload(dm);
             mainTableUtils.addRow(dm);
         }
 
-        var executor = lessCpuIntensive ? Executors.newVirtualThreadPerTaskExecutor() : Executors.newCachedThreadPool();
-        downloadTask.setExecutor(executor);
         log.info(("Starting download in " + (blocking ? "blocking" : "non-blocking") + ": %s").formatted(dm));
         if (blocking)
             downloadTask.runBlocking();
         else
-            executor.submit(downloadTask);
+            AppExecutors.DOWNLOADS.submit(downloadTask);
 
     }
 
@@ -138,8 +139,9 @@ public class DownloadOpUtils {
                         startDownload(dm, speedLimit, byteLimit, true, false);
                     } else
                         restartDownload(dm);
-                    openDownloadings.stream().filter(dc -> dc.getDownloadModel().equals(dm))
-                            .forEach(DetailsController::initDownloadListeners);
+                    var details = openDownloadings.get(dm.getId());
+                    if (details != null)
+                        details.initDownloadListeners();
                 });
     }
 
@@ -154,6 +156,7 @@ public class DownloadOpUtils {
 
     private static void restartDownload(DownloadModel dm) {
         log.info("Restarting download : " + dm);
+        UrlProbeCache.SHARED.invalidate(dm.getUri());
         IOUtils.deleteDownload(dm);
         var lastTryDate = LocalDateTime.now();
         var dmId = dm.getId();
@@ -179,9 +182,9 @@ public class DownloadOpUtils {
     }
 
     public static void pauseDownload(DownloadModel dm) {
-        currentDownloadings.stream()
-                .filter(c -> c.equals(dm))
-                .findFirst().ifPresent(dm2 -> dm2.getDownloadTask().pause());
+        var running = currentDownloadings.find(dm);
+        if (running != null)
+            running.getDownloadTask().pause();
     }
 
     public static void deleteDownloads(ObservableList<DownloadModel> dms, boolean withFiles) {
@@ -195,9 +198,7 @@ public class DownloadOpUtils {
             content += "\nFiles are deleted";
         if (FxUtils.askWarning(header, content)) {
             dms.forEach(dm -> {
-                currentDownloadings.stream().filter(c -> c.equals(dm))
-                        .findFirst()
-                        .ifPresent(dm2 -> dm2.getDownloadTask().pause());
+                pauseDownload(dm);
                 var logMsg = "download deleted: ";
                 DownloadsRepo.deleteDownload(dm);
                 if (withFiles) {
@@ -205,9 +206,9 @@ public class DownloadOpUtils {
                     logMsg = "download deleted with file: ";
                 }
                 log.info(logMsg + dm);
-                var openDownloadingsCopy = new ArrayList<>(openDownloadings);
-                openDownloadingsCopy.stream().filter(dc -> dc.getDownloadModel().equals(dm))
-                        .forEach(DetailsController::closeStage);
+                var details = openDownloadings.get(dm.getId());
+                if (details != null)
+                    details.closeStage();
             });
 
             mainTableUtils.remove(dms);
@@ -358,8 +359,8 @@ public class DownloadOpUtils {
         var fileSize = urlModel.fileSize();
         dm.setUri(url);
         try {
-            var conn = DownloadUtils.connect(url);
-            var canResume = DownloadUtils.canResume(conn);
+            // an unreachable url must fail here rather than start as a guess
+            var canResume = UrlProbeCache.SHARED.get(url).metadata().resumable();
             dm.setResumable(canResume);
             dm.setChunks(canResume ? maxChunks(fileSize) : 0);
             dm.setProgress(0);
@@ -400,9 +401,8 @@ public class DownloadOpUtils {
     }
 
     public static void pauseAllDownloads() {
-        var cpyStartedQueues = new ArrayList<>(startedQueues);
-        cpyStartedQueues.forEach(q -> QueueUtils.stopQueue(q, false));
-        pauseDownloads(currentDownloadings);
+        startedQueues.values().forEach(q -> QueueUtils.stopQueue(q, false));
+        pauseDownloads(currentDownloadings.values());
     }
 
     public static void changeLocation(ObservableList<DownloadModel> selected, ActionEvent e) {
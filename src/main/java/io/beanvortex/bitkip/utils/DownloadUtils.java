@@ -2,8 +2,10 @@ package io.beanvortex.bitkip.utils;
 
 import io.beanvortex.bitkip.config.AppConfigs;
 import io.beanvortex.bitkip.exceptions.DeniedException;
+import io.beanvortex.bitkip.models.DownloadMetadata;
 import io.beanvortex.bitkip.models.DownloadModel;
 import io.beanvortex.bitkip.models.QueueModel;
+import io.beanvortex.bitkip.models.UrlProbe;
 import io.beanvortex.bitkip.repo.DownloadsRepo;
 import io.beanvortex.bitkip.repo.QueuesRepo;
 import javafx.application.Platform;
@@ -19,9 +21,13 @@ import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
 import static io.beanvortex.bitkip.config.AppConfigs.*;
 import static io.beanvortex.bitkip.utils.Defaults.OTHERS_QUEUE;
@@ -45,16 +51,14 @@ public class DownloadUtils {
     }
 
 
-    public static HttpURLConnection connectWithInternetCheck(String uri, boolean showErrors) throws IOException {
+    /**
+     * @return probe of the url from {@link UrlProbeCache}, it is probed if it is not there
+     */
+    public static UrlProbe probeWithInternetCheck(String uri, boolean showErrors) throws IOException {
         try {
             if (uri.isBlank())
                 throw new IllegalArgumentException("URL is blank");
-            uri = Validations.fixURIChars(uri);
-            var url = URI.create(uri).toURL();
-            var testCon = (HttpURLConnection) url.openConnection();
-            testCon.setConnectTimeout(2000);
-            testCon.connect();
-            return connect(uri);
+            return UrlProbeCache.SHARED.get(uri);
         } catch (IOException e) {
             var msg = "Connection or read timeout. Connect to the internet or check the url: " + e.getMessage();
             if (showErrors)
@@ -67,6 +71,57 @@ public class DownloadUtils {
 
     }
 
+    /**
+     * Only for filling fields of forms, which the user can still correct. Downloads that start right away
+     * should read {@link UrlProbeCache} and fail when the url can not be probed
+     *
+     * @return probe of the url from {@link UrlProbeCache}, or what can be guessed from the url itself
+     * if it could not be probed
+     */
+    public static UrlProbe probeOrGuess(String uri) {
+        try {
+            return UrlProbeCache.SHARED.get(uri);
+        } catch (IOException e) {
+            log.error(e.getMessage());
+            return new UrlProbe(new DownloadMetadata(-1, 0, null, false, uri, null), extractFileName(uri, null));
+        }
+    }
+
+    /**
+     * Reads response headers of a link without transferring its body, with HEAD or, when server refuses HEAD,
+     * with a request of its first byte only
+     */
+    public static HttpURLConnection connectForHeaders(String uri) throws IOException {
+        var connection = connect(uri);
+        connection.setRequestMethod("HEAD");
+        if (connection.getResponseCode() < 400)
+            return connection;
+        connection.disconnect();
+        connection = connect(uri);
+        connection.setRequestProperty("Range", "bytes=0-0");
+        var code = connection.getResponseCode();
+        if (code >= 400) {
+            connection.disconnect();
+            throw new IOException("Server responded %d: %s".formatted(code, uri));
+        }
+        return connection;
+    }
+
+    /**
+     * @return size of whole file, which is sent in Content-Range for a range request
+     */
+    public static long getTotalSize(HttpURLConnection connection) {
+        var contentRange = connection.getHeaderField("Content-Range");
+        if (contentRange != null && contentRange.contains("/")) {
+            try {
+                return Long.parseLong(contentRange.substring(contentRange.lastIndexOf('/') + 1).trim());
+            } catch (NumberFormatException ignore) {
+                // total is * when server does not know it
+            }
+        }
+        return getFileSize(connection);
+    }
+
     public static long getFileSize(HttpURLConnection connection) {
         var fileSize = connection.getContentLengthLong();
         if (fileSize == -1)
@@ -111,22 +166,53 @@ public class DownloadUtils {
         return rangeSupport != null && !rangeSupport.equals("none");
     }
 
-    public static CompletableFuture<Long> prepareFileSizeAndFieldsAsync(HttpURLConnection connection, TextField urlField,
+    public static DownloadMetadata readMetadata(HttpURLConnection connection) throws IOException {
+        // response code makes the connection follow redirects before the url is read
+        var partial = connection.getResponseCode() == HttpURLConnection.HTTP_PARTIAL;
+        return new DownloadMetadata(getTotalSize(connection), connection.getLastModified(),
+                connection.getHeaderField("ETag"), partial || canResume(connection), connection.getURL().toString(),
+                HashUtils.readHash(connection));
+    }
+
+    /**
+     * Probes a url without transferring its body, probes are read through {@link UrlProbeCache}
+     */
+    static UrlProbe probeUrl(String uri) throws IOException {
+        var connection = connectForHeaders(uri);
+        try {
+            return new UrlProbe(readMetadata(connection), extractFileName(uri, connection));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * @param text urls separated by white spaces
+     * @param uri  original url of download, which is not a mirror of itself
+     */
+    public static List<String> parseMirrors(String text, String uri) {
+        return Arrays.stream(text.strip().split("\\s+"))
+                .filter(mirror -> !mirror.isBlank() && !mirror.equals(uri))
+                .distinct()
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * @return metadata of the url from {@link UrlProbeCache}, it is probed if it is not there
+     */
+    public static DownloadMetadata probeMetadata(String uri) throws IOException {
+        return UrlProbeCache.SHARED.get(uri).metadata();
+    }
+
+    public static CompletableFuture<Long> prepareFileSizeAndFieldsAsync(String url,
                                                                         Label sizeLabel, Label resumableLabel,
                                                                         TextField speedField, TextField chunksField,
                                                                         TextField bytesField, DownloadModel dm,
                                                                         Executor executor) {
-        final HttpURLConnection[] finalConnection = {connection};
         return CompletableFuture.supplyAsync(() -> {
-            if (finalConnection[0] == null) {
-                try {
-                    finalConnection[0] = connect(urlField.getText());
-                } catch (IOException e) {
-                    log.error(e.getMessage());
-                }
-            }
-            var fileSize = getFileSize(finalConnection[0]);
-            var resumable = canResume(finalConnection[0]);
+            var metadata = probeOrGuess(url).metadata();
+            var fileSize = metadata.size();
+            var resumable = metadata.resumable();
             Platform.runLater(() -> {
                 if (resumable) {
                     chunksField.setText(String.valueOf(maxChunks(fileSize)));
@@ -152,8 +238,11 @@ public class DownloadUtils {
     }
 
 
+    /**
+     * @param connection null if name can only be taken from the link
+     */
     public static String extractFileName(String link, HttpURLConnection connection) {
-        var raw = connection.getHeaderField("Content-Disposition");
+        var raw = connection == null ? null : connection.getHeaderField("Content-Disposition");
         if (raw != null && raw.contains("=")) {
             try {
                 return raw.split("=")[1].replaceAll("\"", "");
@@ -174,18 +263,10 @@ public class DownloadUtils {
         return UUID.randomUUID().toString();
     }
 
-    public static CompletableFuture<String> prepareFileNameAndFieldsAsync(HttpURLConnection connection, String link,
-                                                                          TextField nameField, DownloadModel dm, Executor executor) {
-        final HttpURLConnection[] finalConnection = {connection};
+    public static CompletableFuture<String> prepareFileNameAndFieldsAsync(String link, TextField nameField,
+                                                                          DownloadModel dm, Executor executor) {
         return CompletableFuture.supplyAsync(() -> {
-            if (finalConnection[0] == null) {
-                try {
-                    finalConnection[0] = connect(link);
-                } catch (IOException e) {
-                    log.error(e.getMessage());
-                }
-            }
-            var fileName = extractFileName(link, finalConnection[0]);
+            var fileName = probeOrGuess(link).fileName();
             if (nameField != null)
                 Platform.runLater(() -> nameField.setText(fileName));
             dm.setName(fileName);
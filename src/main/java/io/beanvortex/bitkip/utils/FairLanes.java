@@ -0,0 +1,174 @@
+package io.beanvortex.bitkip.utils;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A semaphore whose waiters are grouped in lanes, such as the downloads of a queue or the connections of a download.
+ * Freed permits are handed to lanes in turns, the lane that is served moves to the end of line,
+ * so a lane with many waiters does not starve the others.
+ * Waiters wait on a {@link ReentrantLock} rather than a monitor, so a waiting virtual thread
+ * gives its carrier back to the threads which hold permits
+ *
+ * @param <K> what permits are counted by besides their total, e.g. host of a connection
+ */
+class FairLanes<K> {
+
+    private static final long WAIT_SLICE = 100;
+
+    /**
+     * Decides whether one more permit fits, called while holding the lock
+     */
+    @FunctionalInterface
+    interface Room<K> {
+        boolean has(K key, int active, int activeOfKey);
+    }
+
+    class Grant {
+        private final K key;
+        private boolean released;
+
+        private Grant(K key) {
+            this.key = key;
+        }
+
+        void release() {
+            lock.lock();
+            try {
+                if (released)
+                    return;
+                released = true;
+                active--;
+                activeByKey.merge(key, -1, Integer::sum);
+                dispatch();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private class Waiter {
+        private final K key;
+        private Grant grant;
+
+        private Waiter(K key) {
+            this.key = key;
+        }
+    }
+
+    private final Room<K> room;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<K, Integer> activeByKey = new HashMap<>();
+    // waiters of each lane in arrival order, lanes are served in the order of this map
+    private final LinkedHashMap<Integer, Deque<Waiter>> waiters = new LinkedHashMap<>();
+    private int active;
+
+    FairLanes(Room<K> room) {
+        this.room = room;
+    }
+
+    /**
+     * @param cancelled checked while waiting, e.g. when download is paused
+     * @param onWait    called once if no permit is free at arrival
+     * @return null if it was cancelled before a permit was free
+     */
+    Grant acquire(K key, int lane, BooleanSupplier cancelled, Runnable onWait) throws InterruptedException {
+        var waiter = new Waiter(key);
+        lock.lock();
+        try {
+            waiters.computeIfAbsent(lane, l -> new ArrayDeque<>()).add(waiter);
+            dispatch();
+            if (waiter.grant == null && onWait != null)
+                onWait.run();
+            while (waiter.grant == null) {
+                if (cancelled.getAsBoolean()) {
+                    removeWaiter(lane, waiter);
+                    return null;
+                }
+                changed.await(WAIT_SLICE, TimeUnit.MILLISECONDS);
+            }
+            return waiter.grant;
+        } catch (InterruptedException e) {
+            // a permit may have been granted while it was interrupted
+            if (waiter.grant != null)
+                waiter.grant.release();
+            else
+                removeWaiter(lane, waiter);
+            throw e;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Limits used by room may be changed from settings, waiters that fit now are served at once
+     */
+    void onLimitsChanged() {
+        lock.lock();
+        try {
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives free permits to the first waiter that fits of each lane in turns. Must be called while holding the lock
+     */
+    private void dispatch() {
+        var granted = true;
+        while (granted && !waiters.isEmpty()) {
+            granted = false;
+            for (var lane : new ArrayList<>(waiters.keySet())) {
+                var queue = waiters.get(lane);
+                var waiter = queue.stream()
+                        .filter(w -> room.has(w.key, active, activeByKey.getOrDefault(w.key, 0)))
+                        .findFirst().orElse(null);
+                if (waiter == null)
+                    continue;
+                queue.remove(waiter);
+                waiter.grant = new Grant(waiter.key);
+                active++;
+                activeByKey.merge(waiter.key, 1, Integer::sum);
+                // served lane goes to the end of line
+                waiters.remove(lane);
+                if (!queue.isEmpty())
+                    waiters.put(lane, queue);
+                granted = true;
+                break;
+            }
+        }
+        changed.signalAll();
+    }
+
+    private void removeWaiter(int lane, Waiter waiter) {
+        var queue = waiters.get(lane);
+        if (queue == null)
+            return;
+        queue.remove(waiter);
+        if (queue.isEmpty())
+            waiters.remove(lane);
+    }
+
+    int getActive() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getWaiting() {
+        lock.lock();
+        try {
+            return waiters.values().stream().mapToInt(Deque::size).sum();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
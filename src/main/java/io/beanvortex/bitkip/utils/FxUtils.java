@@ -219,6 +219,11 @@ public class FxUtils {
     }
 
     public static void newDetailsStage(DownloadModel dm) {
+        var opened = openDownloadings.get(dm.getId());
+        if (opened != null) {
+            opened.getStage().toFront();
+            return;
+        }
         FXMLLoader loader;
         var stage = new Stage();
         VBox root;
@@ -249,9 +254,9 @@ public class FxUtils {
 
         DetailsController controller = loader.getController();
         controller.setStage(stage);
+        controller.setDownloadModel(dm);
         openDownloadings.add(controller);
         getThemeSubject().addObserver(controller, scene);
-        controller.setDownloadModel(dm);
         stage.setOnCloseRequest(e -> {
             openDownloadings.remove(controller);
             getThemeSubject().removeObserver(controller);
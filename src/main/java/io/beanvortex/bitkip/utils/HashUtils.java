@@ -0,0 +1,145 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.models.DownloadModel;
+import io.beanvortex.bitkip.models.HashAlgorithm;
+import io.beanvortex.bitkip.repo.DownloadsRepo;
+import javafx.application.Platform;
+import org.controlsfx.control.Notifications;
+
+import java.net.HttpURLConnection;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import static io.beanvortex.bitkip.config.AppConfigs.log;
+
+/**
+ * Hashes are kept as "ALGORITHM:hex", e.g. SHA-256:9f86d0...
+ */
+public class HashUtils {
+
+    private static final List<HashAlgorithm> HEADER_PREFERENCE = List.of(HashAlgorithm.SHA_256, HashAlgorithm.MD5);
+
+    /**
+     * @param hash hash entered by user, either hex alone or prefixed by algorithm like sha256:hex
+     * @return null if hash is blank
+     * @throws IllegalArgumentException if algorithm is unknown or hex does not fit it
+     */
+    public static String normalize(String hash) {
+        if (hash == null || hash.isBlank())
+            return null;
+        hash = hash.strip();
+        HashAlgorithm algorithm;
+        String hex;
+        var separator = hash.indexOf(':');
+        if (separator == -1)
+            separator = hash.indexOf('=');
+        if (separator != -1) {
+            algorithm = HashAlgorithm.of(hash.substring(0, separator));
+            hex = hash.substring(separator + 1).strip();
+        } else {
+            hex = hash;
+            algorithm = HashAlgorithm.ofHexLength(hex.length());
+        }
+        if (algorithm == null)
+            throw new IllegalArgumentException("Hash algorithm is not supported, use SHA-256, MD5 or CRC32C");
+        if (hex.length() != algorithm.getHexLength() || !hex.chars().allMatch(HexFormat::isHexDigit))
+            throw new IllegalArgumentException("Hash is not a valid " + algorithm + " hex");
+        return algorithm + ":" + hex.toLowerCase();
+    }
+
+    public static HashAlgorithm algorithmOf(String hash) {
+        return HashAlgorithm.of(hash.substring(0, hash.indexOf(':')));
+    }
+
+    /**
+     * Reads hash of whole file from Repr-Digest, Digest, Content-MD5 or an ETag which is an MD5
+     *
+     * @return null if server did not send any
+     */
+    public static String readHash(HttpURLConnection connection) {
+        try {
+            var fromDigest = fromDigestHeaders(connection.getHeaderFields());
+            if (fromDigest != null)
+                return fromDigest;
+            // Content-MD5 of a partial response is the hash of that part only
+            if (connection.getResponseCode() == HttpURLConnection.HTTP_OK) {
+                var contentMd5 = connection.getHeaderField("Content-MD5");
+                if (contentMd5 != null)
+                    return fromBase64(HashAlgorithm.MD5, contentMd5);
+            }
+            return fromETag(connection.getHeaderField("ETag"));
+        } catch (Exception e) {
+            log.warn("Could not read hash from headers: " + e.getMessage());
+            return null;
+        }
+    }
+
+    static String fromDigestHeaders(Map<String, List<String>> headers) {
+        for (var algorithm : HEADER_PREFERENCE) {
+            for (var header : List.of("Repr-Digest", "Digest")) {
+                var values = headers.entrySet().stream()
+                        .filter(e -> header.equalsIgnoreCase(e.getKey()))
+                        .flatMap(e -> e.getValue().stream())
+                        .flatMap(v -> List.of(v.split(",")).stream())
+                        .toList();
+                for (var value : values) {
+                    var separator = value.indexOf('=');
+                    if (separator == -1 || HashAlgorithm.of(value.substring(0, separator).strip()) != algorithm)
+                        continue;
+                    // Repr-Digest wraps the value between colons
+                    var encoded = value.substring(separator + 1).strip().replace(":", "");
+                    return fromBase64(algorithm, encoded);
+                }
+            }
+        }
+        return null;
+    }
+
+    static String fromETag(String eTag) {
+        if (eTag == null || eTag.startsWith("W/"))
+            return null;
+        var value = eTag.replace("\"", "");
+        // multipart uploads of S3 like stores end in -n and are not the MD5 of file
+        if (value.length() != HashAlgorithm.MD5.getHexLength() || !value.chars().allMatch(HexFormat::isHexDigit))
+            return null;
+        return HashAlgorithm.MD5 + ":" + value.toLowerCase();
+    }
+
+    private static String fromBase64(HashAlgorithm algorithm, String encoded) {
+        return algorithm + ":" + HexFormat.of().formatHex(Base64.getDecoder().decode(encoded.strip()));
+    }
+
+    /**
+     * Stores the hash computed while downloading and warns user if it is not the expected one
+     *
+     * @return false if expected hash of download does not match
+     */
+    public static boolean storeAndVerify(DownloadModel dm, String hash) {
+        dm.setHash(hash);
+        DownloadsRepo.updateDownloadHash(dm);
+        if (!isMismatched(dm)) {
+            log.info("Hash of %s: %s".formatted(dm.getName(), hash));
+            return true;
+        }
+        var msg = "Hash of %s does not match, expected %s but it is %s".formatted(dm.getName(), dm.getExpectedHash(), hash);
+        log.error(msg);
+        Platform.runLater(() -> Notifications.create()
+                .title("Downloaded file is corrupted")
+                .text(msg)
+                .showError());
+        return false;
+    }
+
+    /**
+     * A download whose hash does not match is never completed, it is left paused to be verified or downloaded again
+     *
+     * @return true if both hashes are known and they differ
+     */
+    public static boolean isMismatched(DownloadModel dm) {
+        var expected = dm.getExpectedHash();
+        var hash = dm.getHash();
+        return expected != null && hash != null && !expected.equalsIgnoreCase(hash);
+    }
+}
@@ -0,0 +1,77 @@
+package io.beanvortex.bitkip.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static io.beanvortex.bitkip.config.AppConfigs.maxConnectionsPerHost;
+
+/**
+ * Learns how many connections each host accepts, by additive increase and multiplicative decrease.
+ * Every healthy response adds one connection, a refusal, reset or early end of stream halves them.
+ * Limits are kept for the session, so the next download from a host starts at what it has accepted
+ */
+public class HostConcurrency {
+
+    private static final int INITIAL_LIMIT = 8;
+    // failures of connections that were open together are one signal, so the limit halves once for them
+    private static final long DECREASE_INTERVAL = 1000;
+
+    private static class State {
+        private double limit = INITIAL_LIMIT;
+        private long lastDecrease;
+        private boolean learned;
+    }
+
+    private static final Map<String, State> states = new HashMap<>();
+
+    static synchronized int limitOf(String host) {
+        var state = states.get(host);
+        return cap(state == null ? INITIAL_LIMIT : (int) state.limit);
+    }
+
+    /**
+     * @return connections that host of url has accepted in this session, -1 if nothing is learned yet
+     */
+    public static synchronized int learnedLimit(String url) {
+        var state = states.get(ConnectionGovernor.hostOf(url));
+        return state == null || !state.learned ? -1 : cap((int) state.limit);
+    }
+
+    public static void onHealthy(String url) {
+        synchronized (HostConcurrency.class) {
+            var state = stateOf(url);
+            state.limit = Math.min(state.limit + 1, ceiling());
+            state.learned = true;
+        }
+        ConnectionGovernor.onLimitsChanged();
+    }
+
+    /**
+     * Called on 429 and 503, resets and streams that end before their range
+     */
+    public static synchronized void onCongested(String url) {
+        var state = stateOf(url);
+        var now = System.currentTimeMillis();
+        state.learned = true;
+        if (now - state.lastDecrease < DECREASE_INTERVAL)
+            return;
+        state.lastDecrease = now;
+        state.limit = Math.max(state.limit / 2, 1);
+    }
+
+    private static State stateOf(String url) {
+        return states.computeIfAbsent(ConnectionGovernor.hostOf(url), host -> new State());
+    }
+
+    private static double ceiling() {
+        return maxConnectionsPerHost > 0 ? maxConnectionsPerHost : Double.MAX_VALUE;
+    }
+
+    private static int cap(int limit) {
+        return maxConnectionsPerHost > 0 ? Math.min(limit, maxConnectionsPerHost) : limit;
+    }
+
+    static synchronized void reset() {
+        states.clear();
+    }
+}
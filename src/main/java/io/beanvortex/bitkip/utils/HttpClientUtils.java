@@ -0,0 +1,196 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.exceptions.ServerRefusedException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static io.beanvortex.bitkip.config.AppConfigs.*;
+
+/**
+ * Range requests over one shared {@link HttpClient}. Requests to the same host are multiplexed over
+ * a single HTTP/2 connection where the server supports it, otherwise keep-alive connections are reused.
+ * Request timeout of the client only covers the response headers, so bodies are read with a deadline of
+ * readTimeout for each read, like a socket of {@link java.net.HttpURLConnection}
+ */
+public class HttpClientUtils {
+
+    private static final long DEADLINE_CHECK_INTERVAL = 1000;
+
+    private static HttpClient client;
+    private static int clientConnectionTimeout;
+    private static final Set<DeadlineInputStream> openBodies = ConcurrentHashMap.newKeySet();
+    private static boolean checkingDeadlines;
+
+    public static synchronized HttpClient getClient() {
+        if (client == null || clientConnectionTimeout != connectionTimeout) {
+            clientConnectionTimeout = connectionTimeout;
+            // requests in flight are completed by the replaced client, then its threads stop
+            if (client != null)
+                client.shutdown();
+            client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .connectTimeout(Duration.ofMillis(connectionTimeout))
+                    .build();
+        }
+        return client;
+    }
+
+    /**
+     * @param to last byte of the range, inclusive
+     * @return body of the range. server must answer with partial content, since bytes are written at their offsets
+     */
+    public static InputStream openRange(String uri, long from, long to) throws IOException {
+        if (uri.isBlank())
+            throw new IllegalArgumentException("URL is blank");
+        var builder = HttpRequest.newBuilder(URI.create(Validations.fixURIChars(uri)))
+                .header("Range", "bytes=" + from + "-" + to)
+                .timeout(Duration.ofMillis(connectionTimeout + readTimeout))
+                .GET();
+        if (userAgentEnabled)
+            builder.header("User-Agent", userAgent);
+        HttpResponse<InputStream> response;
+        try {
+            response = getClient().send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (HttpTimeoutException e) {
+            // so callers retry it like a timeout of HttpURLConnection
+            throw new SocketTimeoutException(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        if (response.statusCode() == 429 || response.statusCode() == 503) {
+            response.body().close();
+            var retryAfter = parseRetryAfter(response.headers().firstValue("Retry-After").orElse(null));
+            throw new ServerRefusedException("Server refused a connection of %s: %d".formatted(uri, response.statusCode()),
+                    retryAfter);
+        }
+        if (response.statusCode() != 206) {
+            response.body().close();
+            throw new IOException("Server did not answer range request of %s with partial content: %d"
+                    .formatted(uri, response.statusCode()));
+        }
+        return withDeadline(response.body());
+    }
+
+    private static synchronized InputStream withDeadline(InputStream body) {
+        var stream = new DeadlineInputStream(body);
+        openBodies.add(stream);
+        if (!checkingDeadlines) {
+            checkingDeadlines = true;
+            AppExecutors.TIMER.scheduleAtFixedRate(HttpClientUtils::closeExpiredReads,
+                    DEADLINE_CHECK_INTERVAL, DEADLINE_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+        return stream;
+    }
+
+    /**
+     * Closes bodies whose current read has been waiting longer than readTimeout, which wakes the blocked read
+     */
+    private static void closeExpiredReads() {
+        if (readTimeout <= 0)
+            return;
+        var now = System.nanoTime();
+        for (var stream : openBodies)
+            if (stream.expired(now, TimeUnit.MILLISECONDS.toNanos(readTimeout)))
+                stream.expire();
+    }
+
+    /**
+     * Body of a response which fails with {@link SocketTimeoutException} once a read waits past its deadline
+     */
+    private static class DeadlineInputStream extends FilterInputStream {
+
+        // start of the current read in nanos, 0 while it is not reading
+        private volatile long readStarted;
+        private volatile boolean timedOut;
+
+        private DeadlineInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            readStarted = System.nanoTime();
+            try {
+                return checked(super.read());
+            } catch (IOException e) {
+                throw timedOut ? new SocketTimeoutException("Read timed out") : e;
+            } finally {
+                readStarted = 0;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            readStarted = System.nanoTime();
+            try {
+                return checked(super.read(b, off, len));
+            } catch (IOException e) {
+                throw timedOut ? new SocketTimeoutException("Read timed out") : e;
+            } finally {
+                readStarted = 0;
+            }
+        }
+
+        // closed body reads as its end, which must not look like a complete range
+        private int checked(int read) throws SocketTimeoutException {
+            if (read == -1 && timedOut)
+                throw new SocketTimeoutException("Read timed out");
+            return read;
+        }
+
+        private boolean expired(long now, long timeout) {
+            var started = readStarted;
+            return started != 0 && now - started > timeout;
+        }
+
+        private void expire() {
+            timedOut = true;
+            try {
+                close();
+            } catch (IOException ignore) {
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            openBodies.remove(this);
+            super.close();
+        }
+    }
+
+    /**
+     * @param retryAfter value of Retry-After, either seconds or an HTTP date
+     * @return milliseconds to wait, 0 if header is missing or invalid
+     */
+    public static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank())
+            return 0;
+        try {
+            return Math.max(Long.parseLong(retryAfter.strip()) * 1000, 0);
+        } catch (NumberFormatException ignore) {
+        }
+        try {
+            var date = ZonedDateTime.parse(retryAfter.strip(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(date.toInstant().toEpochMilli() - System.currentTimeMillis(), 0);
+        } catch (DateTimeParseException ignore) {
+            return 0;
+        }
+    }
+}
@@ -14,16 +14,23 @@ import org.controlsfx.control.Notifications;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import static io.beanvortex.bitkip.config.AppConfigs.*;
@@ -35,6 +42,8 @@ import static io.beanvortex.bitkip.utils.Defaults.staticQueueNames;
 
 public class IOUtils {
 
+    private static final long MERGE_STEP = 67_108_864;
+    private static final long MERGE_PROGRESS_INTERVAL = 500;
 
     public static void createSaveLocations() {
         mkdir(downloadPath);
@@ -97,9 +106,7 @@ public class IOUtils {
         if (filePaths.stream().allMatch(path -> path.toFile().exists())
                 && currentFileSize == dm.getSize()) {
 
-            var details = openDownloadings.stream()
-                    .filter(dc -> dc.getDownloadModel().equals(dm))
-                    .findFirst();
+            var details = Optional.ofNullable(openDownloadings.get(dm.getId()));
             ProgressBar progressBar;
             Label speedLbl, downloadedLbl;
             if (details.isPresent()) {
@@ -117,49 +124,123 @@ public class IOUtils {
             }
 
             dm.setDownloadStatus(DownloadStatus.Merging);
-            mainTableUtils.refreshTable();
+            if (mainTableUtils != null)
+                mainTableUtils.refreshTable();
 
             var firstFile = filePaths.get(0).toFile();
-            var bufferSize = currentFileSize > 524_288_000 ?
-                    (
-                            currentFileSize > 1_048_576_000 ? 2097152 : 1048576
-                    )
-                    : 8192;
-            var buffer = ByteBuffer.allocateDirect(bufferSize);
-            for (int i = 1; i < chunks; i++) {
-                var nextFile = filePaths.get(i).toFile();
-                try (
-                        var in = new FileInputStream(nextFile);
-                        var out = new FileOutputStream(firstFile, firstFile.exists());
-                        var inputChannel = in.getChannel();
-                        var outputChannel = out.getChannel()
-                ) {
-                    while (inputChannel.read(buffer) != -1) {
-                        buffer.flip();
-                        var bytes = outputChannel.write(buffer);
-                        if (details.isPresent()) {
-                            var finalCurrentFileSize = currentFileSize;
-                            var position = outputChannel.position();
-                            Platform.runLater(() -> {
-                                progressBar.setProgress((double) position / finalCurrentFileSize);
-                                speedLbl.setText(formatBytes(bytes));
-                                var downloadOf = "%s / %s"
-                                        .formatted(formatBytes(position), formatBytes(finalCurrentFileSize));
-                                downloadedLbl.setText(downloadOf);
-                            });
-                        }
-                        buffer.clear();
-                    }
-                }
-                if (nextFile.exists())
-                    nextFile.delete();
-            }
+            mergeParts(filePaths.subList(0, chunks), currentFileSize, progressBar, speedLbl, downloadedLbl);
             var pathToMove = filePaths.get(0).getParent().getParent() + File.separator + dm.getName();
             return firstFile.renameTo(new File(pathToMove));
         }
         return false;
     }
 
+    /**
+     * Appends the rest of parts to the first one, each at its final offset. The copy is done by
+     * {@link FileChannel#transferFrom}, in parallel on {@link AppExecutors#DOWNLOADS} if the file system
+     * handles concurrent writes well. Progress labels are updated at a fixed rate on {@link AppExecutors#TIMER},
+     * if they are given
+     */
+    private static void mergeParts(List<Path> parts, long totalSize, ProgressBar progressBar,
+                                   Label speedLbl, Label downloadedLbl) throws IOException {
+        var firstPart = parts.get(0);
+        var firstSize = Files.size(firstPart);
+        var merged = new AtomicLong(firstSize);
+        ScheduledFuture<?> reporter = null;
+        if (progressBar != null) {
+            var lastMerged = new AtomicLong(firstSize);
+            reporter = AppExecutors.TIMER.scheduleAtFixedRate(() -> {
+                var position = merged.get();
+                var speed = (position - lastMerged.getAndSet(position)) * 1000 / MERGE_PROGRESS_INTERVAL;
+                Platform.runLater(() -> {
+                    progressBar.setProgress((double) position / totalSize);
+                    speedLbl.setText(formatBytes(speed));
+                    downloadedLbl.setText("%s / %s".formatted(formatBytes(position), formatBytes(totalSize)));
+                });
+            }, 0, MERGE_PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+        try (var out = FileChannel.open(firstPart, StandardOpenOption.WRITE)) {
+            var offset = firstSize;
+            if (canMergeInParallel(firstPart)) {
+                var offsets = new ConcurrentLinkedQueue<Map.Entry<Path, Long>>();
+                for (int i = 1; i < parts.size(); i++) {
+                    var part = parts.get(i);
+                    offsets.add(Map.entry(part, offset));
+                    offset += Files.size(part);
+                }
+                // transferFrom may copy nothing at a position past the end of file, so it is extended first
+                if (offset > firstSize)
+                    out.write(ByteBuffer.allocate(1), offset - 1);
+                // shared pool has no bound, so a few workers take parts in turns
+                var futures = new ArrayList<Future<?>>();
+                var workers = Math.min(parts.size() - 1, Runtime.getRuntime().availableProcessors());
+                for (int i = 0; i < Math.max(workers, 1); i++)
+                    futures.add(AppExecutors.DOWNLOADS.submit(() -> {
+                        Map.Entry<Path, Long> next;
+                        while ((next = offsets.poll()) != null)
+                            transferPart(next.getKey(), out, next.getValue(), merged);
+                        return null;
+                    }));
+                try {
+                    for (var future : futures)
+                        future.get();
+                } finally {
+                    // channel must not be closed while a worker still writes to it
+                    offsets.clear();
+                    for (var future : futures)
+                        try {
+                            future.get();
+                        } catch (ExecutionException ignore) {
+                        }
+                }
+            } else
+                for (int i = 1; i < parts.size(); i++) {
+                    var part = parts.get(i);
+                    transferPart(part, out, offset, merged);
+                    offset += Files.size(part);
+                }
+        } catch (IOException | ExecutionException | InterruptedException e) {
+            // first part should have its own bytes only, since resume relies on the size of part files
+            try (var out = FileChannel.open(firstPart, StandardOpenOption.WRITE)) {
+                out.truncate(firstSize);
+            }
+            throw e instanceof IOException io ? io : new IOException(e);
+        } finally {
+            if (reporter != null)
+                reporter.cancel(false);
+        }
+        for (int i = 1; i < parts.size(); i++)
+            Files.deleteIfExists(parts.get(i));
+    }
+
+    private static Void transferPart(Path part, FileChannel out, long offset, AtomicLong merged) throws IOException {
+        try (var in = FileChannel.open(part, StandardOpenOption.READ)) {
+            var size = in.size();
+            var transferred = 0L;
+            while (transferred < size) {
+                var count = out.transferFrom(in, offset + transferred, Math.min(size - transferred, MERGE_STEP));
+                if (count == 0)
+                    throw new IOException("Could not merge " + part);
+                transferred += count;
+                merged.addAndGet(count);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * FAT file systems fill the gap with zeros when writing past the end of a file,
+     * and network shares gain nothing from parallel writes
+     */
+    private static boolean canMergeInParallel(Path path) {
+        try {
+            var type = Files.getFileStore(path).type().toLowerCase();
+            return !type.contains("fat") && !type.contains("nfs") && !type.contains("smb") && !type.contains("cifs");
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     public static void deleteDownload(DownloadModel dm) {
         try {
             if (dm.getChunks() == 0)
@@ -172,6 +253,10 @@ public class IOUtils {
                         Files.deleteIfExists(Path.of(tempPath + File.separator + dm.getName() + "#" + i));
                     else Files.deleteIfExists(Path.of(dm.getFilePath() + "#" + i));
                 }
+                if (Files.exists(tempPath)) {
+                    Files.deleteIfExists(Path.of(tempPath + File.separator + dm.getName()));
+                    Files.deleteIfExists(Path.of(tempPath + File.separator + dm.getName() + DownloadJournal.EXTENSION));
+                }
                 Files.deleteIfExists(Path.of(dm.getFilePath()));
             }
         } catch (IOException e) {
@@ -208,6 +293,8 @@ public class IOUtils {
                 newTempPath += dm.getName();
                 for (int i = 0; i < dm.getChunks(); i++)
                     moveFile(oldTempPath + "#" + i, newTempPath + "#" + i);
+                moveFile(oldTempPath, newTempPath);
+                moveFile(oldTempPath + DownloadJournal.EXTENSION, newTempPath + DownloadJournal.EXTENSION);
             } else
                 moveFile(dm.getFilePath(), newFilePath);
         } else
@@ -288,6 +375,13 @@ public class IOUtils {
                     .append("immediate_download=").append(String.valueOf(downloadImmediately)).append("\n")
                     .append("add_same_download=").append(String.valueOf(addSameDownload)).append("\n")
                     .append("less_cpu_intensive=").append(String.valueOf(lessCpuIntensive)).append("\n")
+                    .append("preallocate_file=").append(String.valueOf(preallocateFile)).append("\n")
+                    .append("http_client_engine=").append(String.valueOf(httpClientEngine)).append("\n")
+                    .append("global_speed_limit=").append(String.valueOf(globalSpeedLimit)).append("\n")
+                    .append("table_update_interval=").append(String.valueOf(tableUpdateInterval)).append("\n")
+                    .append("max_connections_per_host=").append(String.valueOf(maxConnectionsPerHost)).append("\n")
+                    .append("max_connections=").append(String.valueOf(maxConnections)).append("\n")
+                    .append("max_active_downloads=").append(String.valueOf(maxActiveDownloads)).append("\n")
                     .append("last_saved_dir=").append(String.valueOf(lastSavedDir)).append("\n")
                     .append("user_agent_enabled=").append(String.valueOf(userAgentEnabled)).append("\n")
                     .append("user_agent=").append(userAgent);
@@ -326,6 +420,13 @@ public class IOUtils {
                         case "immediate_download" -> downloadImmediately = value.equals("true");
                         case "add_same_download" -> addSameDownload = value.equals("true");
                         case "less_cpu_intensive" -> lessCpuIntensive = value.equals("true");
+                        case "preallocate_file" -> preallocateFile = value.equals("true");
+                        case "http_client_engine" -> httpClientEngine = value.equals("true");
+                        case "global_speed_limit" -> globalSpeedLimit = Long.parseLong(value);
+                        case "table_update_interval" -> tableUpdateInterval = Integer.parseInt(value);
+                        case "max_connections_per_host" -> maxConnectionsPerHost = Integer.parseInt(value);
+                        case "max_connections" -> maxConnections = Integer.parseInt(value);
+                        case "max_active_downloads" -> maxActiveDownloads = Integer.parseInt(value);
                         case "last_saved_dir" -> lastSavedDir = value;
                         case "user_agent" -> userAgent = value;
                         case "user_agent_enabled" -> userAgentEnabled = value.equals("true");
@@ -420,8 +521,7 @@ public class IOUtils {
             var chunks = Validations.maxChunks(Long.MAX_VALUE);
             var allDownloadsQueue = QueuesRepo.findByName(ALL_DOWNLOADS_QUEUE, false);
             var firstUrl = lines.get(0);
-            var connection = DownloadUtils.connect(firstUrl);
-            var firstFileName = DownloadUtils.extractFileName(firstUrl, connection);
+            var firstFileName = DownloadUtils.probeOrGuess(firstUrl).fileName();
             var secondaryQueue = BatchDownload.getSecondaryQueueByFileName(firstFileName);
             var path = DownloadUtils.determineLocation(firstFileName);
 
@@ -5,6 +5,10 @@ import io.beanvortex.bitkip.models.DownloadModel;
 import io.beanvortex.bitkip.models.DownloadStatus;
 import io.beanvortex.bitkip.models.QueueModel;
 import io.beanvortex.bitkip.repo.QueuesRepo;
+import javafx.animation.AnimationTimer;
+import javafx.beans.binding.Bindings;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.event.EventHandler;
 import javafx.scene.control.*;
@@ -15,12 +19,13 @@ import javafx.util.Callback;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 
 import java.text.DecimalFormat;
-import java.util.Arrays;
-import java.util.LinkedHashMap;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import static io.beanvortex.bitkip.config.AppConfigs.currentDownloadings;
 import static io.beanvortex.bitkip.config.AppConfigs.log;
+import static io.beanvortex.bitkip.config.AppConfigs.tableUpdateInterval;
 import static io.beanvortex.bitkip.utils.Defaults.staticQueueNames;
 import static io.beanvortex.bitkip.utils.ShortcutUtils.*;
 
@@ -44,8 +49,30 @@ public class MainTableUtils {
     private final TableColumn<DownloadModel, String> lastTryColumn = new TableColumn<>("Last try");
     private final TableColumn<DownloadModel, String> completeColumn = new TableColumn<>("Completed On");
 
+    // rows of the table by download id, instead of scanning all items
+    private final Map<Integer, DownloadModel> rowsById = new ConcurrentHashMap<>();
+    // downloads that their row should be redrawn on the next pulse
+    private final Set<Integer> dirtyIds = ConcurrentHashMap.newKeySet();
+    private final AnimationTimer pulse = new AnimationTimer() {
+        private long lastPulse;
+
+        @Override
+        public void handle(long now) {
+            if (now - lastPulse < tableUpdateInterval * 1_000_000L)
+                return;
+            lastPulse = now;
+            redrawDirtyRows();
+        }
+    };
+
     public MainTableUtils(TableView<DownloadModel> contentTable) {
         this.contentTable = contentTable;
+        contentTable.getItems().addListener((ListChangeListener<DownloadModel>) c -> {
+            while (c.next()) {
+                c.getRemoved().forEach(dm -> rowsById.remove(dm.getId(), dm));
+                c.getAddedSubList().forEach(dm -> rowsById.put(dm.getId(), dm));
+            }
+        });
     }
 
     public void tableInits() {
@@ -65,12 +92,12 @@ public class MainTableUtils {
                 lastTryColumn, completeColumn, addToQueueDateColumn);
         contentTable.getColumns().addAll(listOfColumns);
         nameColumn.setCellValueFactory(new PropertyValueFactory<>("name"));
-        speedColumn.setCellValueFactory(new PropertyValueFactory<>("speedString"));
-        downloadedColumn.setCellValueFactory(new PropertyValueFactory<>("downloadedString"));
-        sizeColumn.setCellValueFactory(new PropertyValueFactory<>("sizeString"));
-        statusColumn.setCellValueFactory(new PropertyValueFactory<>("downloadStatusString"));
-        remainingColumn.setCellValueFactory(new PropertyValueFactory<>("remainingTime"));
-        chunksColumn.setCellValueFactory(new PropertyValueFactory<>("chunks"));
+        speedColumn.setCellValueFactory(observed(DownloadModel::getSpeedString));
+        downloadedColumn.setCellValueFactory(observed(DownloadModel::getDownloadedString));
+        sizeColumn.setCellValueFactory(observed(DownloadModel::getSizeString));
+        statusColumn.setCellValueFactory(observed(DownloadModel::getDownloadStatusString));
+        remainingColumn.setCellValueFactory(observed(DownloadModel::getRemainingTime));
+        chunksColumn.setCellValueFactory(observed(DownloadModel::getChunks));
         addDateColumn.setCellValueFactory(new PropertyValueFactory<>("addDateString"));
         addToQueueDateColumn.setCellValueFactory(new PropertyValueFactory<>("addToQueueDateString"));
         lastTryColumn.setCellValueFactory(new PropertyValueFactory<>("lastTryDateString"));
@@ -78,6 +105,36 @@ public class MainTableUtils {
         contentTable.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
         contentTable.setOnMouseClicked(onItemsClicked());
         contentTable.setRowFactory(getTableViewTableRowCallback());
+        pulse.start();
+    }
+
+    /**
+     * Cells of running downloads are recomputed when revision of their download changes,
+     * so a row is redrawn without refreshing the whole table
+     */
+    private static <T> Callback<TableColumn.CellDataFeatures<DownloadModel, T>, ObservableValue<T>> observed(
+            Function<DownloadModel, T> getter) {
+        return features -> {
+            var dm = features.getValue();
+            return Bindings.createObjectBinding(() -> getter.apply(dm), dm.getRevision());
+        };
+    }
+
+    private void redrawDirtyRows() {
+        var iterator = dirtyIds.iterator();
+        while (iterator.hasNext()) {
+            var row = rowsById.get(iterator.next());
+            iterator.remove();
+            if (row != null)
+                row.getRevision().set(row.getRevision().get() + 1);
+        }
+    }
+
+    /**
+     * Row of the download is redrawn on the next pulse, changes of a download in between are redrawn once
+     */
+    public void markDirty(DownloadModel dm) {
+        dirtyIds.add(dm.getId());
     }
 
 
@@ -233,7 +290,7 @@ public class MainTableUtils {
                         log.warn(e.getMessage());
                     }
                 }
-                refreshTable();
+                markDirty(i);
             }
         }
     }
@@ -241,17 +298,18 @@ public class MainTableUtils {
     public void updateDownloadProgress(float progress, DownloadModel dm) {
         var downTask = dm.getDownloadTask();
         if (!downTask.isPaused() && currentDownloadings.contains(dm)) {
-            var i2 = currentDownloadings.get(currentDownloadings.indexOf(dm));
-            i2.setProgress(progress);
+            var i2 = currentDownloadings.find(dm);
+            if (i2 != null)
+                i2.setProgress(progress);
             var i = findDownload(dm.getId());
             if (i != null) {
                 i.setProgress(progress);
                 i.setDownloadStatus(DownloadStatus.Downloading);
                 if (progress == 100)
                     i.setDownloadStatus(DownloadStatus.Completed);
+                markDirty(i);
             }
         }
-        refreshTable();
     }
 
     public void updateDownloadedNoSize(long bytes, DownloadModel dm) {
@@ -264,16 +322,13 @@ public class MainTableUtils {
                 i.setSpeedString(IOUtils.formatBytes(0));
                 i.setDownloaded(bytes);
                 i.setRemainingTime("Not Clear");
-                refreshTable();
+                markDirty(i);
             }
         }
     }
 
     public DownloadModel findDownload(int id) {
-        for (var d : contentTable.getItems())
-            if (d.getId() == id)
-                return d;
-        return null;
+        return rowsById.get(id);
     }
 
     public void refreshTable() {
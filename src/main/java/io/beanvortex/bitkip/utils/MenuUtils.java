@@ -300,9 +300,7 @@ public class MenuUtils {
                     .filter(qm -> !staticQueueNames.contains(qm.getName()))
                     .findFirst()
                     .ifPresent(qm -> {
-                        var startedQueue = new StartedQueue(qm);
-                        if (startedQueues.contains(startedQueue))
-                            startedQueues.get(startedQueues.indexOf(startedQueue)).queue().getDownloads().remove(dm);
+                        QueueUtils.removeFromStartedQueue(qm, dm);
                         DownloadsRepo.deleteDownloadQueue(dm.getId(), qm.getId());
                     });
             if (moveFiles) {
@@ -324,9 +322,7 @@ public class MenuUtils {
                             return;
                         if (staticQueueNames.stream().noneMatch(s -> dm.getQueues().get(0).getName().equals(s)))
                             mainTableUtils.remove(dm);
-                        var startedQueue = new StartedQueue(qm);
-                        if (startedQueues.contains(startedQueue))
-                            startedQueues.get(startedQueues.indexOf(startedQueue)).queue().getDownloads().add(dm);
+                        QueueUtils.addToStartedQueue(qm, dm);
                         if (moveFiles) {
                             var newFilePath = FileType.determineFileType(dm.getName()).getPath() + dm.getName();
                             if (qm.hasFolder())
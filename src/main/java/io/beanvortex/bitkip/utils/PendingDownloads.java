@@ -0,0 +1,163 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.models.DownloadModel;
+import io.beanvortex.bitkip.models.QueuePolicy;
+
+import java.util.*;
+
+/**
+ * Waiting downloads of a started queue, which hands them out in the order of the policy of the queue.
+ * Downloads that are equal by the policy keep the order they are added in
+ */
+interface PendingDownloads {
+
+    void add(DownloadModel dm);
+
+    DownloadModel poll();
+
+    DownloadModel peek();
+
+    void remove(DownloadModel dm);
+
+    void clear();
+
+    static PendingDownloads of(QueuePolicy policy) {
+        return switch (policy) {
+            case IN_ORDER -> new InOrder();
+            case PRIORITY -> new Ordered(Comparator.comparingInt(DownloadModel::getPriority).reversed());
+            case SHORTEST_FIRST -> new Ordered(Comparator.comparingLong(PendingDownloads::remainingBytes));
+            case HOST_FAIR_SHARE -> new HostFairShare();
+            case DEADLINE -> new Ordered(Comparator.comparing(DownloadModel::getDeadline,
+                    Comparator.nullsLast(Comparator.naturalOrder())));
+        };
+    }
+
+    /**
+     * Downloads of which size is not known yet are the longest
+     */
+    private static long remainingBytes(DownloadModel dm) {
+        return dm.getSize() > 0 ? dm.getSize() - dm.getDownloaded() : Long.MAX_VALUE;
+    }
+
+    class InOrder implements PendingDownloads {
+
+        private final Deque<DownloadModel> downloads = new ArrayDeque<>();
+
+        @Override
+        public void add(DownloadModel dm) {
+            downloads.add(dm);
+        }
+
+        @Override
+        public DownloadModel poll() {
+            return downloads.poll();
+        }
+
+        @Override
+        public DownloadModel peek() {
+            return downloads.peek();
+        }
+
+        @Override
+        public void remove(DownloadModel dm) {
+            downloads.remove(dm);
+        }
+
+        @Override
+        public void clear() {
+            downloads.clear();
+        }
+    }
+
+    class Ordered implements PendingDownloads {
+
+        private record Entry(DownloadModel dm, long order) {
+        }
+
+        private final PriorityQueue<Entry> downloads;
+        private long added;
+
+        Ordered(Comparator<DownloadModel> comparator) {
+            Comparator<Entry> byPolicy = (e1, e2) -> comparator.compare(e1.dm(), e2.dm());
+            downloads = new PriorityQueue<>(byPolicy.thenComparingLong(Entry::order));
+        }
+
+        @Override
+        public void add(DownloadModel dm) {
+            downloads.add(new Entry(dm, added++));
+        }
+
+        @Override
+        public DownloadModel poll() {
+            var entry = downloads.poll();
+            return entry == null ? null : entry.dm();
+        }
+
+        @Override
+        public DownloadModel peek() {
+            var entry = downloads.peek();
+            return entry == null ? null : entry.dm();
+        }
+
+        @Override
+        public void remove(DownloadModel dm) {
+            downloads.removeIf(entry -> entry.dm().equals(dm));
+        }
+
+        @Override
+        public void clear() {
+            downloads.clear();
+        }
+    }
+
+    class HostFairShare implements PendingDownloads {
+
+        private final Map<String, Deque<DownloadModel>> byHost = new HashMap<>();
+        // hosts that have waiting downloads, the head one is next
+        private final Deque<String> turns = new ArrayDeque<>();
+
+        @Override
+        public void add(DownloadModel dm) {
+            byHost.computeIfAbsent(ConnectionGovernor.hostOf(dm.getUri()), host -> {
+                turns.add(host);
+                return new ArrayDeque<>();
+            }).add(dm);
+        }
+
+        @Override
+        public DownloadModel poll() {
+            var host = turns.poll();
+            if (host == null)
+                return null;
+            var downloads = byHost.get(host);
+            var dm = downloads.poll();
+            if (downloads.isEmpty())
+                byHost.remove(host);
+            else
+                turns.add(host);
+            return dm;
+        }
+
+        @Override
+        public DownloadModel peek() {
+            var host = turns.peek();
+            return host == null ? null : byHost.get(host).peek();
+        }
+
+        @Override
+        public void remove(DownloadModel dm) {
+            var host = ConnectionGovernor.hostOf(dm.getUri());
+            var downloads = byHost.get(host);
+            if (downloads != null && downloads.remove(dm) && downloads.isEmpty()) {
+                byHost.remove(host);
+                turns.remove(host);
+            }
+        }
+
+        @Override
+        public void clear() {
+            byHost.clear();
+            turns.clear();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.models.DownloadModel;
+import io.beanvortex.bitkip.models.DownloadStatus;
+import io.beanvortex.bitkip.models.QueuePolicy;
+import io.beanvortex.bitkip.models.StartedQueue;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static io.beanvortex.bitkip.config.AppConfigs.currentDownloadings;
+
+/**
+ * Downloads of a started queue, at most simultaneouslyDownload of them at a time, in the order of its policy.
+ * A waiting download is started as soon as a running one is removed from currentDownloadings,
+ * every start and finish is constant work besides ordering of the policy
+ */
+class QueueRun {
+
+    private final StartedQueue startedQueue;
+    private final PendingDownloads pending;
+    // downloads started by this run which are still running, by their id
+    private final Map<Integer, DownloadModel> running = new HashMap<>();
+    // ids of running downloads that are paused for one with higher priority
+    private final Set<Integer> preempted = new HashSet<>();
+    private final boolean preemptive;
+    private final Consumer<DownloadModel> starter;
+    private final Consumer<DownloadModel> pauser;
+    private final Predicate<DownloadModel> isRunning;
+    private final Runnable onDone;
+    private final Consumer<Registry.Change<DownloadModel>> listener = this::onChange;
+    private int permits;
+    private boolean stopped;
+
+    /**
+     * @param starter   starts a download without blocking
+     * @param pauser    pauses a running download for a preemptive policy
+     * @param isRunning whether a download is still in currentDownloadings
+     * @param onDone    called once, when nothing is pending or running
+     */
+    QueueRun(StartedQueue startedQueue, List<DownloadModel> downloads, Consumer<DownloadModel> starter,
+             Consumer<DownloadModel> pauser, Predicate<DownloadModel> isRunning, Runnable onDone) {
+        this.startedQueue = startedQueue;
+        var policy = startedQueue.queue().getPolicy();
+        this.pending = PendingDownloads.of(policy);
+        downloads.forEach(pending::add);
+        this.preemptive = policy == QueuePolicy.PRIORITY;
+        this.starter = starter;
+        this.pauser = pauser;
+        this.isRunning = isRunning;
+        this.onDone = onDone;
+        this.permits = Math.max(startedQueue.queue().getSimultaneouslyDownload(), 1);
+    }
+
+    static QueueRun of(StartedQueue startedQueue, List<DownloadModel> downloads,
+                       Consumer<DownloadModel> starter, Consumer<DownloadModel> pauser, Runnable onDone) {
+        var run = new QueueRun(startedQueue, downloads, starter, pauser, currentDownloadings::contains, onDone);
+        currentDownloadings.addListener(run.listener);
+        return run;
+    }
+
+    // removal is seen on the thread of the finished download, next ones are started on a queue thread
+    private void onChange(Registry.Change<DownloadModel> change) {
+        if (change.type() == Registry.ChangeType.REMOVED)
+            AppExecutors.QUEUES.execute(() -> onFinished(change.value()));
+    }
+
+    /**
+     * Frees the slot of a download of this run, which has completed, paused or failed
+     */
+    void onFinished(DownloadModel dm) {
+        synchronized (this) {
+            if (stopped || running.remove(dm.getId()) == null)
+                return;
+            preempted.remove(dm.getId());
+            permits++;
+        }
+        dispatch();
+    }
+
+    /**
+     * Starts pending downloads while there are free slots
+     */
+    void dispatch() {
+        var done = false;
+        DownloadModel victim = null;
+        while (true) {
+            DownloadModel next;
+            synchronized (this) {
+                if (stopped)
+                    return;
+                next = permits > 0 ? nextPending() : null;
+                if (next == null && running.isEmpty()) {
+                    stop();
+                    done = true;
+                }
+                if (next == null) {
+                    if (permits == 0)
+                        victim = preempt();
+                    break;
+                }
+                permits--;
+                running.put(next.getId(), next);
+            }
+            starter.accept(next);
+            // it has failed to start or has already finished, before its removal could be seen
+            if (!isRunning.test(next))
+                synchronized (this) {
+                    if (running.remove(next.getId()) != null)
+                        permits++;
+                }
+        }
+        // its slot is taken over by the waiting one when its removal is seen
+        if (victim != null)
+            pauser.accept(victim);
+        if (done)
+            onDone.run();
+    }
+
+    /**
+     * @return a running download with lower priority than the next waiting one, which goes back to waiting
+     */
+    private DownloadModel preempt() {
+        if (!preemptive || !preempted.isEmpty())
+            return null;
+        var waiting = peekPending();
+        if (waiting == null)
+            return null;
+        var victim = running.values().stream()
+                .min(Comparator.comparingInt(DownloadModel::getPriority))
+                .orElse(null);
+        if (victim == null || victim.getPriority() >= waiting.getPriority())
+            return null;
+        preempted.add(victim.getId());
+        pending.add(victim);
+        return victim;
+    }
+
+    private DownloadModel nextPending() {
+        peekPending();
+        return pending.poll();
+    }
+
+    // drops downloads from the head which are completed or already running
+    private DownloadModel peekPending() {
+        DownloadModel dm;
+        while ((dm = pending.peek()) != null && !isStartable(dm))
+            pending.poll();
+        return dm;
+    }
+
+    private boolean isStartable(DownloadModel dm) {
+        return dm.getDownloadStatus() == DownloadStatus.Paused && !running.containsKey(dm.getId());
+    }
+
+    synchronized void add(DownloadModel dm) {
+        if (!stopped)
+            pending.add(dm);
+    }
+
+    synchronized void remove(DownloadModel dm) {
+        pending.remove(dm);
+    }
+
+    /**
+     * Places a waiting download again, after its priority, size or deadline is changed
+     */
+    synchronized void reorder(DownloadModel dm) {
+        if (stopped || running.containsKey(dm.getId()))
+            return;
+        pending.remove(dm);
+        pending.add(dm);
+    }
+
+    /**
+     * Detaches the run, downloads that are running are left to the caller
+     */
+    synchronized void stop() {
+        stopped = true;
+        pending.clear();
+        currentDownloadings.removeListener(listener);
+    }
+
+    synchronized boolean isStopped() {
+        return stopped;
+    }
+
+    synchronized boolean isRunning(DownloadModel dm) {
+        return running.containsKey(dm.getId());
+    }
+
+    synchronized int getRunning() {
+        return running.size();
+    }
+
+    StartedQueue getStartedQueue() {
+        return startedQueue;
+    }
+}
@@ -10,10 +10,9 @@ import org.controlsfx.control.Notifications;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.beanvortex.bitkip.config.AppConfigs.*;
 import static io.beanvortex.bitkip.config.observers.QueueSubject.addAllQueues;
@@ -21,6 +20,8 @@ import static io.beanvortex.bitkip.config.observers.QueueSubject.getQueues;
 
 public class QueueUtils {
 
+    // integer represents queueModelId
+    private static final Map<Integer, QueueRun> runs = new ConcurrentHashMap<>();
 
     public static void startQueue(StartedQueue startedQueue, boolean canTurnOff) {
         var qm = startedQueue.queue();
@@ -35,14 +36,11 @@ public class QueueUtils {
                             .sorted(Comparator.comparing(DownloadModel::getAddToQueueDate))
                             .toList()
             );
-            var executor = Executors.newCachedThreadPool();
             if (downloadsByQueue.isEmpty()) {
                 if (triggerTurnOffOnEmptyQueue)
-                    whenQueueDone(startedQueue, canTurnOff, executor);
-                else {
+                    whenQueueDone(startedQueue, canTurnOff);
+                else
                     queueDoneNotification(qm);
-                    executor.shutdownNow();
-                }
                 return;
             }
             startItem.setDisable(true);
@@ -52,126 +50,86 @@ public class QueueUtils {
             downloadsByQueue = new ArrayList<>(downloadsByQueue.stream().map(mainTableUtils::getObservedDownload).toList());
             qm.setDownloads(new CopyOnWriteArrayList<>(downloadsByQueue));
             startedQueues.add(startedQueue);
-            start(startedQueue, canTurnOff, executor);
+            start(startedQueue, canTurnOff);
             log.info("Queue has been started: " + qm);
         } else if (schedule.isEnabled() && schedule.isOnceDownload()) {
             // in case when user starts the queue manually which adds the queue to startedQueues and
             // when start scheduler runs, it shutdowns the start scheduler
-            currentSchedules.get(schedule.getId()).getStartScheduler().shutdownNow();
+            currentSchedules.get(schedule.getId()).getStartScheduler().cancel();
             log.info("Start scheduler has been disabled for: " + qm.getName());
         }
 
     }
 
-    private static void start(StartedQueue startedQueue, boolean canTurnOff, ExecutorService executor) {
-        executor.submit(() -> {
-            var qm = startedQueue.queue();
-            var simulDownloads = new AtomicInteger(0);
-            var sDownloads = qm.getSimultaneouslyDownload();
-            for (int i = 0; i < qm.getDownloads().size(); i++) {
-                var pauseCount = qm.getDownloads().stream()
-                        .filter(dm -> dm.getDownloadStatus() == DownloadStatus.Paused)
-                        .count();
-                var dm = qm.getDownloads().get(i);
-                if (dm.getDownloadStatus() == DownloadStatus.Paused) {
-                    dm.setOpenAfterComplete(false);
-                    dm.setShowCompleteDialog(false);
-                    dm.setTurnOffMode(TurnOffMode.NOTHING);
-                    if (!dm.getQueues().contains(qm))
-                        dm.getQueues().add(qm);
-                    String speedLimit = "0";
-                    if (qm.getSpeed() != null)
-                        speedLimit = qm.getSpeed();
-                    if (sDownloads > 1) {
-                        if (pauseCount >= sDownloads || (pauseCount > 0 && sDownloads == simulDownloads.get()))
-                            i = performSimultaneousDownloadWaitForPrev(qm, simulDownloads, i, dm, speedLimit, sDownloads);
-                        else if (pauseCount < sDownloads)
-                            performSimultaneousDownloadDontWaitForPrev(
-                                    sDownloads - simulDownloads.get(),
-                                    simulDownloads,
-                                    dm, speedLimit);
-                    } else DownloadOpUtils.startDownload(dm, IOUtils.getBytesFromString(speedLimit), 0, true, true);
-
-                }
-                if (!startedQueues.contains(startedQueue))
-                    break;
-            }
-
-            var pauseCount = qm.getDownloads().stream().filter(dm -> dm.getDownloadStatus() == DownloadStatus.Paused).count();
-            // when queue is done or paused all manually and one simultaneously download
-            if (sDownloads == 1 && startedQueues.contains(startedQueue) && pauseCount != 0)
-                whenQueueDone(startedQueue, canTurnOff, executor);
-            else
-                waitToFinishForLessPausedDownloads(startedQueue, canTurnOff, executor);
-
+    private static void start(StartedQueue startedQueue, boolean canTurnOff) {
+        var qm = startedQueue.queue();
+        var run = QueueRun.of(startedQueue, qm.getDownloads(), dm -> {
+            dm.setOpenAfterComplete(false);
+            dm.setShowCompleteDialog(false);
+            dm.setTurnOffMode(TurnOffMode.NOTHING);
+            if (!dm.getQueues().contains(qm))
+                dm.getQueues().add(qm);
+            DownloadOpUtils.startDownload(dm, 0, 0, true, false);
+        }, dm -> {
+            log.info("Download is paused for one with higher priority in %s: %s".formatted(qm.getName(), dm));
+            DownloadOpUtils.pauseDownload(dm);
+        }, () -> {
+            runs.remove(qm.getId());
+            if (startedQueues.contains(startedQueue))
+                whenQueueDone(startedQueue, canTurnOff);
         });
-
+        runs.put(qm.getId(), run);
+        AppExecutors.QUEUES.execute(run::dispatch);
     }
 
-
     /**
-     * consider 7 files are going to download in parallel. 3 of them will get inside if-clause and the 4th one will be hold
-     * in else clause until one of those 3 stops or finishes
+     * Lets a started queue know about a download which is added to it
      */
-    private static int performSimultaneousDownloadWaitForPrev(QueueModel qm, AtomicInteger simulDownloads,
-                                                              int i, DownloadModel dm, String speedLimit, int sDownloads) {
-        if (simulDownloads.get() < sDownloads) {
-            DownloadOpUtils.startDownload(dm, IOUtils.getBytesFromString(speedLimit),
-                    0, true, false);
-            simulDownloads.getAndIncrement();
-        } else {
-            while (true) {
-                var count = currentDownloadings.stream().filter(d -> d.getQueues().contains(qm)).count();
-                if (count < simulDownloads.get()) {
-                    simulDownloads.set((int) count);
-                    i--;
-                    break;
-                }
-                try {
-                    Thread.sleep(5000);
-                } catch (InterruptedException ignore) {
-                }
-            }
+    public static void addToStartedQueue(QueueModel qm, DownloadModel dm) {
+        var started = startedQueues.find(new StartedQueue(qm));
+        if (started == null)
+            return;
+        started.queue().getDownloads().add(dm);
+        var run = runs.get(qm.getId());
+        if (run != null) {
+            run.add(dm);
+            AppExecutors.QUEUES.execute(run::dispatch);
         }
-        return i;
     }
 
     /**
-     * it is useful when queue simultaneously downloads are greater than current paused downloads in queue
-     * it starts all downloads non-blocking and the waiting to finish is done later in waitToFinishForLessPausedDownloads method
-     *
-     * @see QueueUtils#waitToFinishForLessPausedDownloads(StartedQueue, boolean, ExecutorService)
+     * @return id of the started queue that is running the download, or {@link DownloadAdmission#MANUAL}
      */
-    private static void performSimultaneousDownloadDontWaitForPrev(int remainingSimul, AtomicInteger simulDownloads,
-                                                                   DownloadModel dm, String speedLimit) {
-        if (remainingSimul != 0) {
-            DownloadOpUtils.startDownload(dm, IOUtils.getBytesFromString(speedLimit), 0, true, false);
-            simulDownloads.getAndIncrement();
-        }
+    static int laneOf(DownloadModel dm) {
+        for (var run : runs.values())
+            if (run.isRunning(dm))
+                return run.getStartedQueue().queue().getId();
+        return DownloadAdmission.MANUAL;
     }
 
-
     /**
-     * waits for non-blocking downloads to finish
-     *
-     * @see QueueUtils#performSimultaneousDownloadDontWaitForPrev(int, AtomicInteger, DownloadModel, String)
+     * Lets started queues of a download place it again, after its priority or deadline is changed
      */
-    private static void waitToFinishForLessPausedDownloads(StartedQueue startedQueue, boolean canTurnOff, ExecutorService executor) {
-        var qm = startedQueue.queue();
-        var count = currentDownloadings.stream().filter(d -> d.getQueues().contains(qm)).count();
-        while (count != 0) {
-            try {
-                Thread.sleep(2000);
-                count = currentDownloadings.stream().filter(d -> d.getQueues().contains(qm)).count();
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
-            }
+    public static void reorderInStartedQueues(DownloadModel dm) {
+        for (var run : runs.values()) {
+            if (!run.getStartedQueue().queue().getDownloads().contains(dm))
+                continue;
+            run.reorder(dm);
+            AppExecutors.QUEUES.execute(run::dispatch);
         }
-        if (startedQueues.contains(startedQueue))
-            whenQueueDone(startedQueue, canTurnOff, executor);
     }
 
-    private static void whenQueueDone(StartedQueue startedQueue, boolean canTurnOff, ExecutorService executor) {
+    public static void removeFromStartedQueue(QueueModel qm, DownloadModel dm) {
+        var started = startedQueues.find(new StartedQueue(qm));
+        if (started == null)
+            return;
+        started.queue().getDownloads().remove(dm);
+        var run = runs.get(qm.getId());
+        if (run != null)
+            run.remove(dm);
+    }
+
+    private static void whenQueueDone(StartedQueue startedQueue, boolean canTurnOff) {
         var startItem = startedQueue.startItem();
         var stopItem = startedQueue.stopItem();
         var qm = startedQueue.queue();
@@ -191,8 +149,6 @@ public class QueueUtils {
             });
         }
         shutdownSchedulersOnOnceDownload(qm);
-        if (executor != null)
-            executor.shutdownNow();
         log.info("Queue stopped automatically: " + qm.toStringModel());
     }
 
@@ -202,8 +158,12 @@ public class QueueUtils {
     }
 
     public static void stopQueue(StartedQueue startedQueue, boolean canTurnOff) {
-        if (startedQueues.contains(startedQueue)) {
-            var downloadsByQueue = startedQueues.get(startedQueues.indexOf(startedQueue)).queue().getDownloads();
+        var started = startedQueues.find(startedQueue);
+        if (started != null) {
+            var run = runs.remove(startedQueue.queue().getId());
+            if (run != null)
+                run.stop();
+            var downloadsByQueue = started.queue().getDownloads();
             downloadsByQueue.forEach(dm -> {
                 dm = mainTableUtils.getObservedDownload(dm);
                 DownloadOpUtils.pauseDownload(dm);
@@ -211,16 +171,16 @@ public class QueueUtils {
 
             startedQueues.remove(startedQueue);
             log.info("Queue has been stopped: " + startedQueue.queue());
-            whenQueueDone(startedQueue, canTurnOff, null);
+            whenQueueDone(startedQueue, canTurnOff);
         }
     }
 
     private static void shutdownSchedulersOnOnceDownload(QueueModel qm) {
         var schedule = qm.getSchedule();
         if (schedule.isEnabled() && schedule.isOnceDownload()) {
-            currentSchedules.get(schedule.getId()).getStartScheduler().shutdownNow();
+            currentSchedules.get(schedule.getId()).getStartScheduler().cancel();
             var stopScheduler = currentSchedules.get(schedule.getId()).getStopScheduler();
-            if (stopScheduler != null) stopScheduler.shutdownNow();
+            if (stopScheduler != null) stopScheduler.cancel();
             schedule.setEnabled(false);
             var updatedQueues = getQueues().stream()
                     .peek(q -> {
@@ -0,0 +1,123 @@
+package io.beanvortex.bitkip.utils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static io.beanvortex.bitkip.config.AppConfigs.log;
+
+/**
+ * Thread safe set of values which are looked up by their key, such as running downloads by their id.
+ * Listeners are told about every added and removed value on the thread that changed the registry
+ */
+public class Registry<K, V> {
+
+    public enum ChangeType {
+        ADDED, REMOVED
+    }
+
+    public record Change<V>(ChangeType type, V value) {
+    }
+
+    private final Map<K, V> entries = new ConcurrentHashMap<>();
+    private final Function<V, K> keyOf;
+    private final List<Consumer<Change<V>>> listeners = new CopyOnWriteArrayList<>();
+
+    public Registry(Function<V, K> keyOf) {
+        this.keyOf = keyOf;
+    }
+
+    /**
+     * @return false if a value with the same key is already registered
+     */
+    public boolean add(V value) {
+        var added = entries.putIfAbsent(keyOf.apply(value), value) == null;
+        if (added)
+            fire(ChangeType.ADDED, value);
+        return added;
+    }
+
+    /**
+     * Removes the registered value with the key of the given one, if they are equal
+     */
+    public boolean remove(V value) {
+        var key = keyOf.apply(value);
+        var registered = entries.get(key);
+        if (registered == null || !registered.equals(value) || !entries.remove(key, registered))
+            return false;
+        fire(ChangeType.REMOVED, registered);
+        return true;
+    }
+
+    public V get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * @return registered value that has the key of the given one, which might be another instance of it
+     */
+    public V find(V value) {
+        var registered = entries.get(keyOf.apply(value));
+        return registered != null && registered.equals(value) ? registered : null;
+    }
+
+    public boolean contains(V value) {
+        return find(value) != null;
+    }
+
+    public boolean containsKey(K key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * @return a snapshot of the registered values
+     */
+    public List<V> values() {
+        return List.copyOf(entries.values());
+    }
+
+    public Stream<V> stream() {
+        return entries.values().stream();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public void clear() {
+        values().forEach(this::remove);
+    }
+
+    public void addListener(Consumer<Change<V>> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<Change<V>> listener) {
+        listeners.remove(listener);
+    }
+
+    private void fire(ChangeType type, V value) {
+        var change = new Change<>(type, value);
+        for (var listener : listeners) {
+            try {
+                listener.accept(change);
+            } catch (Exception e) {
+                // a failing listener must not break the caller that changed the registry
+                log.error(e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Registry" + entries.values();
+    }
+}
@@ -85,7 +85,7 @@ public class SideUtils {
             if (event.getButton().equals(MouseButton.PRIMARY)) {
                 // updates status of current downloading before changing queue
                 if (itemName.equals("Queues")) return;
-                currentDownloadings.forEach(DownloadsRepo::updateTableStatus);
+                currentDownloadings.values().forEach(DownloadsRepo::updateTableStatus);
                 Predicate<DownloadModel> condition = null;
                 String queueToFetch = itemName;
                 switch (itemName) {
@@ -189,8 +189,9 @@ public class SideUtils {
                     if (dm.getProgress() == 100)
                         dm.setDownloadStatus(DownloadStatus.Completed);
                     // this will make downloads in currentDownloadings, observed by table
-                    if (currentDownloadings.contains(dm))
-                        return currentDownloadings.get(currentDownloadings.indexOf(dm));
+                    var running = currentDownloadings.find(dm);
+                    if (running != null)
+                        return running;
                     return dm;
                 }).toList();
     }
@@ -0,0 +1,115 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.models.HashAlgorithm;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32C;
+
+/**
+ * Hashes a download in order while its chunks arrive out of order.
+ * Bytes written at the cursor are hashed from the buffer they were written from, bytes written ahead of
+ * the cursor are read back when the cursor reaches them, while they are still likely in the page cache
+ */
+public class StreamingDigest {
+
+    private static final int READ_SIZE = 1024 * 1024;
+
+    @FunctionalInterface
+    public interface Source {
+        /**
+         * @return bytes read into buffer at the absolute position of download
+         */
+        int read(ByteBuffer buffer, long position) throws IOException;
+    }
+
+    private final HashAlgorithm algorithm;
+    private final MessageDigest messageDigest;
+    private final CRC32C crc;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile long cursor;
+
+    public StreamingDigest(HashAlgorithm algorithm) {
+        this.algorithm = algorithm;
+        if (algorithm == HashAlgorithm.CRC32C) {
+            messageDigest = null;
+            crc = new CRC32C();
+        } else {
+            try {
+                messageDigest = MessageDigest.getInstance(algorithm.getLabel());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            crc = null;
+        }
+    }
+
+    public long getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Hashes bytes which were written at position, if they are next in order.
+     * Never blocks a connection, bytes that could not be hashed here are read back by catchUp
+     */
+    public void offer(long position, ByteBuffer bytes) {
+        if (position != cursor || !lock.tryLock())
+            return;
+        try {
+            if (position == cursor)
+                update(bytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads back and hashes the bytes from cursor until limit
+     *
+     * @param limit first byte that is not written yet, asked again after every read
+     */
+    public void catchUp(LongSupplier limit, Source source) throws IOException {
+        var buffer = ByteBuffer.allocate(READ_SIZE);
+        while (true) {
+            lock.lock();
+            try {
+                var end = limit.getAsLong();
+                if (cursor >= end)
+                    return;
+                buffer.clear().limit((int) Math.min(READ_SIZE, end - cursor));
+                var read = source.read(buffer, cursor);
+                if (read <= 0)
+                    throw new IOException("Could not read written bytes at " + cursor);
+                update(buffer.flip());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void update(ByteBuffer bytes) {
+        cursor += bytes.remaining();
+        if (crc != null)
+            crc.update(bytes);
+        else
+            messageDigest.update(bytes);
+    }
+
+    /**
+     * @return hash of bytes until cursor, as ALGORITHM:hex. Digest is finished after this
+     */
+    public String getValue() {
+        lock.lock();
+        try {
+            var hex = crc != null ? "%08x".formatted(crc.getValue()) : HexFormat.of().formatHex(messageDigest.digest());
+            return algorithm + ":" + hex;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package io.beanvortex.bitkip.utils;
+
+/**
+ * Bytes per second limit which refills continuously instead of once a second.
+ * Bytes are reserved right away and the bucket may go into debt, callers wait until it is paid back,
+ * so each reservation is short and rate changes take effect on the next one
+ */
+public class TokenBucket {
+
+    // bucket holds at most this fraction of a second of traffic, which keeps bursts small
+    private static final double BURST_SECONDS = 0.1;
+    private static final long MIN_CAPACITY = 16_384;
+    private static final long NANOS_IN_SEC = 1_000_000_000L;
+
+    private long rate;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param rate bytes per second, 0 for unlimited
+     */
+    public TokenBucket(long rate) {
+        this.rate = Math.max(rate, 0);
+        this.tokens = getCapacity();
+        this.lastRefill = System.nanoTime();
+    }
+
+    public synchronized long getRate() {
+        return rate;
+    }
+
+    public synchronized boolean isUnlimited() {
+        return rate == 0;
+    }
+
+    /**
+     * Applies to the next reservation, bytes already reserved are paid back at the old rate up to now
+     */
+    public synchronized void setRate(long rate) {
+        refill(System.nanoTime());
+        this.rate = Math.max(rate, 0);
+        tokens = Math.min(tokens, getCapacity());
+    }
+
+    /**
+     * @return the largest number of bytes worth reserving at once, so a single read never waits long
+     */
+    public synchronized long getCapacity() {
+        if (rate == 0)
+            return Long.MAX_VALUE;
+        return Math.max((long) (rate * BURST_SECONDS), MIN_CAPACITY);
+    }
+
+    /**
+     * @return nanoseconds to wait before the reserved bytes are within the rate
+     */
+    public synchronized long reserve(long bytes) {
+        return reserve(bytes, System.nanoTime());
+    }
+
+    synchronized long reserve(long bytes, long now) {
+        if (rate == 0)
+            return 0;
+        refill(now);
+        tokens -= bytes;
+        if (tokens >= 0)
+            return 0;
+        return (long) (-tokens * NANOS_IN_SEC / rate);
+    }
+
+    private void refill(long now) {
+        if (rate != 0 && now > lastRefill)
+            tokens = Math.min(tokens + (double) (now - lastRefill) * rate / NANOS_IN_SEC, getCapacity());
+        lastRefill = now;
+    }
+}
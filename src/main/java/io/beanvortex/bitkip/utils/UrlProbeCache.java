@@ -0,0 +1,115 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.models.UrlProbe;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Probes of urls, so a url which is probed when it is added is not probed again to fill its fields or to start it.
+ * At most maxEntries urls are kept and the least recently used one is dropped first. A probe older than ttl is
+ * probed again, and a url is probed again after it is invalidated, e.g. when its download is restarted.
+ * When a url is probed by several callers at once, only one request is sent and the others wait for its result
+ */
+public class UrlProbeCache {
+
+    public static final UrlProbeCache SHARED = new UrlProbeCache(256, Duration.ofMinutes(5),
+            Clock.systemUTC(), DownloadUtils::probeUrl);
+
+    @FunctionalInterface
+    public interface Prober {
+        UrlProbe probe(String uri) throws IOException;
+    }
+
+    private record Entry(CompletableFuture<UrlProbe> probe, Instant probedAt) {
+    }
+
+    private final Duration ttl;
+    private final Clock clock;
+    private final Prober prober;
+    private final Map<String, Entry> entries;
+
+    UrlProbeCache(int maxEntries, Duration ttl, Clock clock, Prober prober) {
+        this.ttl = ttl;
+        this.clock = clock;
+        this.prober = prober;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return probe of the url which is not older than ttl, the url is probed if there is none
+     */
+    public UrlProbe get(String uri) throws IOException {
+        Entry entry;
+        var probing = false;
+        synchronized (entries) {
+            entry = entries.get(uri);
+            if (entry == null || isExpired(entry)) {
+                entry = new Entry(new CompletableFuture<>(), clock.instant());
+                entries.put(uri, entry);
+                probing = true;
+            }
+        }
+        if (probing) {
+            try {
+                var probe = prober.probe(uri);
+                entry.probe().complete(probe);
+                return probe;
+            } catch (IOException | RuntimeException e) {
+                // a failed probe is not kept, next caller tries again
+                remove(uri, entry);
+                entry.probe().completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return entry.probe().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re)
+                throw re;
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private boolean isExpired(Entry entry) {
+        return entry.probe().isDone() && clock.instant().isAfter(entry.probedAt().plus(ttl));
+    }
+
+    private void remove(String uri, Entry entry) {
+        synchronized (entries) {
+            entries.remove(uri, entry);
+        }
+    }
+
+    /**
+     * Next get of the url probes it again
+     */
+    public void invalidate(String uri) {
+        synchronized (entries) {
+            entries.remove(uri);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
@@ -13,6 +13,8 @@ import java.io.IOException;
 
 public class Validations {
 
+    public static final int MAX_CHUNKS = 32;
+
     public static void validateInputChecks(TextField chunksField, TextField bytesField, TextField speedField, DownloadModel dm) {
         validateChunksInput(chunksField);
         validateSpeedInput(speedField);
@@ -126,13 +128,13 @@ public class Validations {
         validateIntInputCheck(secondSpinner.getEditor(), null, 0, 59);
     }
 
+    /**
+     * Most connections a download may use. The number it actually uses is tuned by its throughput
+     */
     public static int maxChunks(long fileSize) {
         if (fileSize < 2_000_000)
             return 0;
-        int processors = Runtime.getRuntime().availableProcessors();
-        if (processors < 10)
-            return processors * 2;
-        return processors;
+        return MAX_CHUNKS;
     }
 
     public static boolean validateUri(String uri) {
@@ -156,9 +158,10 @@ public class Validations {
             return;
 
         // when download added and size not fetched
-        var connection = DownloadUtils.connectWithInternetCheck(dm.getUri(), true);
-        var canResume = DownloadUtils.canResume(connection);
-        var fileSize = DownloadUtils.getFileSize(connection);
+        var metadata = DownloadUtils.probeWithInternetCheck(dm.getUri(), true).metadata();
+        dm.setMetadata(metadata);
+        var canResume = metadata.resumable();
+        var fileSize = metadata.size();
         dm.setSize(fileSize);
         dm.setResumable(canResume);
         if (!canResume) dm.setChunks(0);
@@ -170,9 +173,9 @@ public class Validations {
             observedDownload.setSize(fileSize);
             observedDownload.setResumable(canResume);
             observedDownload.setChunks(dm.getChunks());
-            AppConfigs.openDownloadings.stream()
-                    .filter(dc -> dc.getDownloadModel().equals(dm))
-                    .forEach(dc -> dc.setDownloadModel(dm));
+            var details = AppConfigs.openDownloadings.get(dm.getId());
+            if (details != null)
+                details.setDownloadModel(dm);
             String[] cols = {DownloadsRepo.COL_SIZE, DownloadsRepo.COL_RESUMABLE, DownloadsRepo.COL_CHUNKS};
             String[] values = {String.valueOf(fileSize), canResume ? "1" : "0", String.valueOf(dm.getChunks())};
             DatabaseHelper.updateCols(cols, values, DatabaseHelper.DOWNLOADS_TABLE_NAME, dm.getId());
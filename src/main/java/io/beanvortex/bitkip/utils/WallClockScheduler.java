@@ -0,0 +1,198 @@
+package io.beanvortex.bitkip.utils;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.Executor;
+
+import static io.beanvortex.bitkip.config.AppConfigs.log;
+
+/**
+ * One thread which triggers all schedules, at times of the wall clock rather than after fixed delays.
+ * Triggers wait in one queue ordered by their next time, the thread never sleeps longer than {@link #MAX_SLEEP},
+ * so it notices when the clock jumps, after the system is resumed or clock is changed.
+ * Next time of a trigger is computed from the wall clock each time it fires, which keeps it on the same local
+ * time after daylight saving changes. A trigger that fires later than its grace is missed and only that trigger
+ * moves on to its next time
+ */
+public class WallClockScheduler {
+
+    static final long MAX_SLEEP = 30_000;
+
+    /**
+     * @return next time of a trigger which is after the given time, null if there is none
+     */
+    @FunctionalInterface
+    public interface Recurrence {
+        ZonedDateTime nextAfter(ZonedDateTime time);
+
+        static Recurrence once(LocalDateTime dateTime) {
+            return time -> {
+                var next = dateTime.atZone(time.getZone());
+                return next.isAfter(time) ? next : null;
+            };
+        }
+
+        /**
+         * A time that falls in a daylight saving gap is moved forward by the gap, in an overlap the earlier one is used
+         */
+        static Recurrence onDays(LocalTime localTime, Set<DayOfWeek> days) {
+            return time -> {
+                var date = time.toLocalDate();
+                for (int i = 0; i <= 7; i++, date = date.plusDays(1)) {
+                    if (!days.contains(date.getDayOfWeek()))
+                        continue;
+                    var next = ZonedDateTime.of(date, localTime, time.getZone());
+                    if (next.isAfter(time))
+                        return next;
+                }
+                return null;
+            };
+        }
+    }
+
+    public class Trigger {
+        private final Recurrence recurrence;
+        private final Duration grace;
+        private final Runnable action;
+        private final Runnable onMissed;
+        private ZonedDateTime next;
+        private boolean cancelled;
+
+        private Trigger(Recurrence recurrence, Duration grace, Runnable action, Runnable onMissed) {
+            this.recurrence = recurrence;
+            this.grace = grace;
+            this.action = action;
+            this.onMissed = onMissed;
+        }
+
+        public void cancel() {
+            synchronized (lock) {
+                cancelled = true;
+                triggers.remove(this);
+                lock.notifyAll();
+            }
+        }
+
+        /**
+         * @return null when it has no next time or is cancelled
+         */
+        public ZonedDateTime getNext() {
+            synchronized (lock) {
+                return cancelled ? null : next;
+            }
+        }
+
+        public boolean isCancelled() {
+            synchronized (lock) {
+                return cancelled;
+            }
+        }
+    }
+
+    private final String name;
+    private final Clock clock;
+    private final Executor executor;
+    private final Object lock = new Object();
+    private final PriorityQueue<Trigger> triggers = new PriorityQueue<>(Comparator.comparing(t -> t.next));
+    private Thread thread;
+
+    /**
+     * @param executor actions are handed over to it, so a long action does not delay other triggers
+     */
+    WallClockScheduler(String name, Clock clock, Executor executor) {
+        this.name = name;
+        this.clock = clock;
+        this.executor = executor;
+    }
+
+    /**
+     * @param grace    how late a trigger may still fire
+     * @param onMissed called instead of action when it was later than grace, may be null
+     */
+    public Trigger schedule(Recurrence recurrence, Duration grace, Runnable action, Runnable onMissed) {
+        var trigger = new Trigger(recurrence, grace, action, onMissed);
+        synchronized (lock) {
+            trigger.next = recurrence.nextAfter(now());
+            if (trigger.next == null)
+                trigger.cancelled = true;
+            else {
+                triggers.add(trigger);
+                lock.notifyAll();
+            }
+        }
+        return trigger;
+    }
+
+    void start() {
+        synchronized (lock) {
+            if (thread != null)
+                return;
+            thread = new Thread(this::loop, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void loop() {
+        while (true) {
+            try {
+                fireDue();
+                synchronized (lock) {
+                    var head = triggers.peek();
+                    var sleep = head == null ? MAX_SLEEP
+                            : Duration.between(now(), head.next).toMillis();
+                    if (sleep > 0)
+                        lock.wait(Math.min(sleep, MAX_SLEEP));
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                // one failing trigger must not stop the others
+                log.error(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Fires every trigger whose time has come and queues them again at their next time
+     */
+    void fireDue() {
+        var due = new ArrayList<Runnable>();
+        synchronized (lock) {
+            var now = now();
+            Trigger trigger;
+            while ((trigger = triggers.peek()) != null && !trigger.next.isAfter(now)) {
+                triggers.poll();
+                var late = Duration.between(trigger.next, now);
+                if (late.compareTo(trigger.grace) <= 0)
+                    due.add(trigger.action);
+                else {
+                    log.info("Trigger is missed by %d seconds, it was due at %s".formatted(late.toSeconds(), trigger.next));
+                    if (trigger.onMissed != null)
+                        due.add(trigger.onMissed);
+                }
+                trigger.next = trigger.recurrence.nextAfter(now);
+                if (trigger.next == null)
+                    trigger.cancelled = true;
+                else
+                    triggers.add(trigger);
+            }
+        }
+        due.forEach(executor::execute);
+    }
+
+    private ZonedDateTime now() {
+        return ZonedDateTime.now(clock);
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return triggers.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WallClockScheduler{name=" + name + ", triggers=" + size() + '}';
+    }
+}
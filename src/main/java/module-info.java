@@ -3,6 +3,7 @@ module io.beanvortex.bitkip {
     requires javafx.controls;
     requires javafx.fxml;
     requires java.base;
+    requires java.net.http;
     requires jdk.crypto.cryptoki;
     requires org.controlsfx.controls;
     requires org.kordamp.ikonli.javafx;
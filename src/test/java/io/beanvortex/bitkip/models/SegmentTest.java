@@ -0,0 +1,41 @@
+package io.beanvortex.bitkip.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentTest {
+
+    @Test
+    void split_GIVES_SECOND_HALF() {
+        var segment = new Segment(Path.of("file#0"), 0, 0, 999);
+        segment.advance(200);
+        var stolen = segment.split(100);
+        assertNotNull(stolen);
+        assertEquals(600, stolen.getStart());
+        assertEquals(999, stolen.getEnd());
+        assertEquals(599, segment.getEnd());
+        assertEquals(segment.remaining(), stolen.remaining());
+    }
+
+    @Test
+    void split_TOO_SMALL() {
+        var segment = new Segment(Path.of("file#0"), 0, 0, 999);
+        segment.advance(900);
+        assertNull(segment.split(100));
+        assertEquals(999, segment.getEnd());
+    }
+
+    @Test
+    void filePosition_RELATIVE_TO_PART() {
+        var segment = new Segment(Path.of("file#1"), 1000, 1000, 1999);
+        var stolen = segment.split(10);
+        assertNotNull(stolen);
+        assertEquals(1000, stolen.getFileOffset());
+        assertEquals(500, stolen.getFilePosition());
+        stolen.advance(500);
+        assertTrue(stolen.isDone());
+    }
+}
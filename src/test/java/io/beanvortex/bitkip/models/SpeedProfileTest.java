@@ -0,0 +1,36 @@
+package io.beanvortex.bitkip.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpeedProfileTest {
+
+    @Test
+    void speed_LASTS_UNTIL_NEXT_PERIOD_AND_WRAPS_OVER_MIDNIGHT() {
+        var profile = SpeedProfile.parse("18:00=0; 09:00=2");
+        assertEquals("09:00=2, 18:00=0", profile.toString());
+        assertEquals(2 * 1_048_576, profile.rateAt(LocalTime.of(9, 0)));
+        assertEquals(2 * 1_048_576, profile.rateAt(LocalTime.of(17, 59)));
+        assertEquals(0, profile.rateAt(LocalTime.of(23, 0)));
+        // before the first period of the day, the last one of previous day is still on
+        assertEquals(0, profile.rateAt(LocalTime.of(3, 0)));
+        assertEquals(profile, SpeedProfile.parse(profile.toString()));
+    }
+
+    @Test
+    void empty_PROFILE_HAS_NO_RATE() {
+        assertTrue(SpeedProfile.parse(" ").isEmpty());
+        assertEquals(-1, SpeedProfile.EMPTY.rateAt(LocalTime.NOON));
+    }
+
+    @Test
+    void invalid_PERIODS_ARE_REJECTED() {
+        assertThrows(IllegalArgumentException.class, () -> SpeedProfile.parse("9am=2"));
+        assertThrows(IllegalArgumentException.class, () -> SpeedProfile.parse("09:00=-1"));
+        assertThrows(IllegalArgumentException.class, () -> SpeedProfile.parse("09:00=1, 09:00=2"));
+        assertThrows(IllegalArgumentException.class, () -> SpeedProfile.parse("09:00"));
+    }
+}
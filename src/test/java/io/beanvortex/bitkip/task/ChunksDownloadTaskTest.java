@@ -0,0 +1,40 @@
+package io.beanvortex.bitkip.task;
+
+import io.beanvortex.bitkip.models.Segment;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunksDownloadTaskTest {
+
+    @Test
+    void paused_PART_WITH_STOLEN_TAIL_IS_NOT_COMPLETE() throws Exception {
+        var part = Files.createTempFile("part", "#0");
+        try {
+            var head = new Segment(part, 0, 0, 999);
+            head.advance(100);
+            var tail = head.split(100);
+            assertNotNull(tail);
+            // tail connection finishes first and writes at the end of the part
+            try (var out = FileChannel.open(part, StandardOpenOption.WRITE)) {
+                out.write(ByteBuffer.allocate((int) tail.remaining()), tail.getFilePosition());
+            }
+            tail.advance(tail.remaining());
+
+            // part file has its full length, though bytes between head and tail are still zeros
+            assertEquals(1000, Files.size(part));
+            assertFalse(ChunksDownloadTask.isComplete(List.of(head, tail)));
+
+            head.advance(head.remaining());
+            assertTrue(ChunksDownloadTask.isComplete(List.of(head, tail)));
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package io.beanvortex.bitkip.task;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionTunerTest {
+
+    private static int sampleTimes(ConnectionTuner tuner, long bytesPerSecond, int times) {
+        var target = tuner.getTarget();
+        for (int i = 0; i < times; i++)
+            target = tuner.sample(bytesPerSecond);
+        return target;
+    }
+
+    @Test
+    void grows_WHILE_THROUGHPUT_RISES() {
+        var tuner = new ConnectionTuner(4, 32);
+        assertEquals(6, sampleTimes(tuner, 1_000_000, 3));
+        assertEquals(9, sampleTimes(tuner, 1_500_000, 3));
+        assertEquals(13, sampleTimes(tuner, 2_200_000, 3));
+    }
+
+    @Test
+    void reverts_ON_PLATEAU() {
+        var tuner = new ConnectionTuner(4, 32);
+        assertEquals(6, sampleTimes(tuner, 1_000_000, 3));
+        assertEquals(4, sampleTimes(tuner, 1_000_000, 3));
+        assertEquals(4, sampleTimes(tuner, 1_000_000, 20));
+    }
+
+    @Test
+    void drops_WHEN_REFUSED() {
+        var tuner = new ConnectionTuner(8, 32);
+        tuner.onRefused();
+        assertEquals(7, tuner.sample(1_000_000));
+        assertEquals(7, sampleTimes(tuner, 5_000_000, 40));
+    }
+
+    @Test
+    void never_EXCEEDS_MAX() {
+        var tuner = new ConnectionTuner(10, 4);
+        assertEquals(4, tuner.getTarget());
+        assertEquals(4, sampleTimes(tuner, 1_000_000, 10));
+    }
+}
@@ -0,0 +1,57 @@
+package io.beanvortex.bitkip.task;
+
+import io.beanvortex.bitkip.config.AppConfigs;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MirrorPoolTest {
+
+    @BeforeAll
+    static void initLogger() {
+        AppConfigs.log = LoggerFactory.getLogger("BitKip");
+    }
+
+    @Test
+    void acquire_SPREADS_UNMEASURED_MIRRORS() {
+        var pool = new MirrorPool(List.of("a", "b"));
+        var first = pool.acquire();
+        var second = pool.acquire();
+        assertNotEquals(first.getUrl(), second.getUrl());
+    }
+
+    @Test
+    void sample_DROPS_SLOW_MIRROR() {
+        var pool = new MirrorPool(List.of("fast", "slow"));
+        var fast = pool.acquire();
+        var slow = pool.acquire();
+        for (int i = 0; i < 10; i++) {
+            fast.onRead(1_000_000);
+            slow.onRead(10_000);
+            pool.sample();
+        }
+        assertTrue(slow.isDropped());
+        assertFalse(fast.isDropped());
+        pool.release(fast);
+        pool.release(slow);
+        assertEquals("fast", pool.acquire().getUrl());
+    }
+
+    @Test
+    void onFailure_KEEPS_LAST_MIRROR() {
+        var pool = new MirrorPool(List.of("a", "b"));
+        var a = pool.acquire();
+        var b = pool.acquire();
+        for (int i = 0; i < 3; i++)
+            assertTrue(pool.onFailure(a, new IOException("404")));
+        assertTrue(a.isDropped());
+        for (int i = 0; i < 3; i++)
+            assertFalse(pool.onFailure(b, new IOException("404")));
+        assertFalse(b.isDropped());
+    }
+}
@@ -0,0 +1,35 @@
+package io.beanvortex.bitkip.task;
+
+import io.beanvortex.bitkip.utils.HttpClientUtils;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryPolicyTest {
+
+    @Test
+    void onConnectFailure_STOPS_AFTER_BUDGET() {
+        var policy = new RetryPolicy(3, 5, false);
+        for (int i = 0; i < 3; i++)
+            assertTrue(policy.onConnectFailure() >= 0);
+        assertEquals(-1, policy.onConnectFailure());
+        // resets have their own budget
+        assertTrue(policy.onTransferReset() >= 0);
+    }
+
+    @Test
+    void backoff_IS_BOUNDED() {
+        var policy = new RetryPolicy(0, 0, true);
+        for (int i = 0; i < 100; i++) {
+            var delay = policy.onConnectFailure();
+            assertTrue(delay >= 0 && delay <= 30_000);
+        }
+    }
+
+    @Test
+    void onRefused_WAITS_FOR_RETRY_AFTER() {
+        var policy = new RetryPolicy(3, 3, false);
+        assertTrue(policy.onRefused(HttpClientUtils.parseRetryAfter("7")) >= 7000);
+        assertEquals(0, HttpClientUtils.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+    }
+}
@@ -0,0 +1,52 @@
+package io.beanvortex.bitkip.task;
+
+import io.beanvortex.bitkip.models.Segment;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StallWatchdogTest {
+
+    private static final Path FILE = Path.of("file");
+
+    private static Map<Segment, StallWatchdog.Action> run(StallWatchdog watchdog, List<Segment> segments,
+                                                          Segment slow, int samples) {
+        Map<Segment, StallWatchdog.Action> actions = Map.of();
+        for (int i = 0; i < samples; i++) {
+            for (var segment : segments)
+                segment.advance(segment == slow ? 1_000 : 1_000_000);
+            actions = watchdog.sample(segments);
+            if (!actions.isEmpty())
+                return actions;
+        }
+        return actions;
+    }
+
+    @Test
+    void sample_HEDGES_THEN_CANCELS_STALLED_SEGMENT() {
+        var watchdog = new StallWatchdog();
+        for (int i = 0; i < 20; i++)
+            watchdog.onRequest();
+        var segments = List.of(new Segment(FILE, 0, 0, 99_999_999),
+                new Segment(FILE, 0, 100_000_000, 199_999_999),
+                new Segment(FILE, 0, 200_000_000, 299_999_999));
+        var slow = segments.get(1);
+        assertEquals(Map.of(slow, StallWatchdog.Action.HEDGE), run(watchdog, segments, slow, 10));
+        assertEquals(Map.of(slow, StallWatchdog.Action.CANCEL), run(watchdog, segments, slow, 10));
+    }
+
+    @Test
+    void sample_STOPS_WHEN_BUDGET_IS_SPENT() {
+        var watchdog = new StallWatchdog();
+        var segments = List.of(new Segment(FILE, 0, 0, 99_999_999),
+                new Segment(FILE, 0, 100_000_000, 199_999_999),
+                new Segment(FILE, 0, 200_000_000, 299_999_999));
+        var slow = segments.get(1);
+        assertFalse(run(watchdog, segments, slow, 10).isEmpty());
+        assertTrue(run(watchdog, segments, slow, 10).isEmpty());
+    }
+}
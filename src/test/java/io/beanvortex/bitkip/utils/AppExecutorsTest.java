@@ -0,0 +1,31 @@
+package io.beanvortex.bitkip.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AppExecutorsTest {
+
+    @Test
+    void downloads_RUN_ON_NAMED_VIRTUAL_THREADS() throws Exception {
+        var submitted = AppExecutors.DOWNLOADS.getSubmitted();
+        var thread = AppExecutors.DOWNLOADS.submit(Thread::currentThread).get();
+        assertTrue(thread.isVirtual());
+        assertTrue(thread.getName().startsWith("download-"));
+        assertEquals(submitted + 1, AppExecutors.DOWNLOADS.getSubmitted());
+    }
+
+    @Test
+    void shared_POOL_CAN_NOT_BE_SHUT_DOWN() {
+        assertThrows(UnsupportedOperationException.class, AppExecutors.QUEUES::shutdownNow);
+        assertFalse(AppExecutors.QUEUES.isShutdown());
+    }
+
+    @Test
+    void timer_RUNS_ON_ONE_DAEMON_THREAD() throws Exception {
+        var thread = AppExecutors.TIMER.submit(Thread::currentThread).get();
+        assertFalse(thread.isVirtual());
+        assertTrue(thread.isDaemon());
+        assertEquals(thread, AppExecutors.TIMER.submit(Thread::currentThread).get());
+    }
+}
@@ -0,0 +1,50 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.config.AppConfigs;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionGovernorTest {
+
+    @AfterEach
+    void restoreLimits() {
+        AppConfigs.maxConnectionsPerHost = AppConfigs.defaultMaxConnectionsPerHost;
+        AppConfigs.maxConnections = AppConfigs.defaultMaxConnections;
+    }
+
+    @Test
+    void acquire_WAITS_FOR_FREE_PERMIT_OF_HOST() throws Exception {
+        AppConfigs.maxConnectionsPerHost = 1;
+        var first = ConnectionGovernor.acquire("https://a.com/file", 1, () -> false);
+        // another host is not limited by the first one
+        var other = ConnectionGovernor.acquire("https://b.com/file", 1, () -> false);
+        assertNotNull(other);
+        var second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return ConnectionGovernor.acquire("https://A.com/other", 2, () -> false);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(300);
+        assertFalse(second.isDone());
+        first.close();
+        second.get(2, TimeUnit.SECONDS).close();
+        other.close();
+        assertEquals(0, ConnectionGovernor.getActive());
+    }
+
+    @Test
+    void acquire_RETURNS_NULL_WHEN_CANCELLED() throws Exception {
+        AppConfigs.maxConnections = 1;
+        var first = ConnectionGovernor.acquire("https://a.com/file", 1, () -> false);
+        assertNull(ConnectionGovernor.acquire("https://b.com/file", 2, () -> true));
+        first.close();
+        assertEquals(0, ConnectionGovernor.getActive());
+    }
+}
@@ -0,0 +1,72 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.config.AppConfigs;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownloadAdmissionTest {
+
+    @BeforeEach
+    void setUp() {
+        AppConfigs.log = LoggerFactory.getLogger("BitKip");
+    }
+
+    @AfterEach
+    void restoreLimits() {
+        AppConfigs.maxActiveDownloads = AppConfigs.defaultMaxActiveDownloads;
+    }
+
+    private static CompletableFuture<Void> waitFor(int downloadId, int lane, List<Integer> admitted) throws Exception {
+        var waiting = DownloadAdmission.getWaiting();
+        var future = CompletableFuture.runAsync(() -> {
+            try (var ticket = DownloadAdmission.acquire(downloadId, lane, () -> false)) {
+                assertNotNull(ticket);
+                admitted.add(downloadId);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        // waiters must be in line in this order
+        while (DownloadAdmission.getWaiting() == waiting)
+            Thread.sleep(10);
+        return future;
+    }
+
+    @Test
+    void freed_TICKETS_ARE_GIVEN_TO_LANES_IN_TURNS() throws Exception {
+        AppConfigs.maxActiveDownloads = 1;
+        var admitted = new CopyOnWriteArrayList<Integer>();
+        var first = DownloadAdmission.acquire(1, 1, () -> false);
+        var futures = List.of(
+                waitFor(2, 1, admitted),
+                waitFor(3, 1, admitted),
+                waitFor(4, DownloadAdmission.MANUAL, admitted));
+        assertEquals(1, DownloadAdmission.getActive());
+        first.close();
+        for (var future : futures)
+            future.get(2, TimeUnit.SECONDS);
+        // manual download is not starved by the queue which has more waiting downloads
+        assertEquals(List.of(2, 4, 3), admitted);
+        assertEquals(0, DownloadAdmission.getActive());
+    }
+
+    @Test
+    void acquire_RETURNS_NULL_WHEN_CANCELLED() throws Exception {
+        AppConfigs.maxActiveDownloads = 1;
+        var first = DownloadAdmission.acquire(1, DownloadAdmission.MANUAL, () -> false);
+        assertNull(DownloadAdmission.acquire(2, 1, () -> true));
+        assertEquals(0, DownloadAdmission.getWaiting());
+        first.close();
+        first.close();
+        assertEquals(0, DownloadAdmission.getActive());
+    }
+}
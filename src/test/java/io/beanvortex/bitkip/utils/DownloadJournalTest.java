@@ -0,0 +1,78 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.models.DownloadMetadata;
+import io.beanvortex.bitkip.models.Segment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownloadJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void checkpoint_LOADS_WRITTEN_RANGES() throws Exception {
+        var file = dir.resolve("file");
+        Files.write(file, new byte[100]);
+        var segment = new Segment(file, 0, 10, 99);
+        segment.advance(ByteBuffer.wrap(new byte[20]));
+        var metadata = new DownloadMetadata(100, 0, "\"v1\"", true, null, null);
+
+        var journal = new DownloadJournal(dir.resolve("file" + DownloadJournal.EXTENSION));
+        journal.setValidator(metadata);
+        journal.checkpoint(List.of(segment), false);
+        journal.close();
+
+        var loaded = new DownloadJournal(dir.resolve("file" + DownloadJournal.EXTENSION));
+        loaded.load(metadata);
+        assertFalse(loaded.wasClean());
+        var range = loaded.getConfirmed().get(0);
+        assertEquals(10, range.start());
+        assertEquals(29, range.end());
+    }
+
+    @Test
+    void verify_KEEPS_MATCHING_RANGES() throws Exception {
+        var file = dir.resolve("file");
+        Files.write(file, new byte[100]);
+        var segment = new Segment(file, 0, 0, 99);
+        segment.advance(ByteBuffer.wrap(new byte[50]));
+
+        var journal = new DownloadJournal(dir.resolve("file" + DownloadJournal.EXTENSION));
+        journal.checkpoint(List.of(segment), false);
+        journal.close();
+
+        var loaded = new DownloadJournal(dir.resolve("file" + DownloadJournal.EXTENSION));
+        loaded.load(null);
+        loaded.verify(range -> file, range -> 0);
+        assertEquals(1, loaded.getConfirmed().size());
+    }
+
+    @Test
+    void older_SNAPSHOT_DOES_NOT_OVERWRITE_NEWER_ONE() throws Exception {
+        var file = dir.resolve("file");
+        Files.write(file, new byte[100]);
+        var segment = new Segment(file, 0, 0, 99);
+        segment.advance(ByteBuffer.wrap(new byte[10]));
+        var journal = new DownloadJournal(dir.resolve("file" + DownloadJournal.EXTENSION));
+        // a background checkpoint takes its snapshot, then the final one overtakes it
+        var older = journal.snapshot(List.of(segment));
+        segment.advance(ByteBuffer.wrap(new byte[30]));
+        journal.checkpoint(journal.snapshot(List.of(segment)), true);
+        journal.checkpoint(older, false);
+        journal.close();
+        journal.checkpoint(journal.snapshot(List.of(segment)), false);
+
+        var loaded = new DownloadJournal(dir.resolve("file" + DownloadJournal.EXTENSION));
+        loaded.load(null);
+        assertTrue(loaded.wasClean());
+        assertEquals(39, loaded.getConfirmed().get(0).end());
+    }
+}
@@ -5,10 +5,12 @@ import io.beanvortex.bitkip.repo.DownloadsRepo;
 import io.beanvortex.bitkip.repo.QueuesRepo;
 import io.beanvortex.bitkip.config.AppConfigs;
 import io.beanvortex.bitkip.models.DownloadStatus;
+import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.Test;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.net.InetSocketAddress;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -72,7 +74,42 @@ class DownloadUtilsTest {
         deleteDownload(dm3);
     }
 
-
+    @Test
+    void connectForHeaders_FALLS_BACK_TO_FIRST_BYTE_WHEN_HEAD_IS_REFUSED() throws Exception {
+        AppConfigs.log = LoggerFactory.getLogger("BitKip");
+        var server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/head", exchange -> {
+            exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.createContext("/range", exchange -> {
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                exchange.sendResponseHeaders(405, -1);
+            } else {
+                assertEquals("bytes=0-0", exchange.getRequestHeaders().getFirst("Range"));
+                exchange.getResponseHeaders().add("Content-Range", "bytes 0-0/1000");
+                exchange.sendResponseHeaders(206, 1);
+                exchange.getResponseBody().write(0);
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            var base = "http://localhost:" + server.getAddress().getPort();
+            var head = DownloadUtils.connectForHeaders(base + "/head");
+            assertEquals("HEAD", head.getRequestMethod());
+            assertTrue(DownloadUtils.canResume(head));
+            head.disconnect();
+
+            var range = DownloadUtils.connectForHeaders(base + "/range");
+            assertEquals(206, range.getResponseCode());
+            assertEquals(1000, DownloadUtils.getTotalSize(range));
+            range.disconnect();
+        } finally {
+            server.stop(0);
+        }
+    }
 
     private static String getNewFileNameIfExists(String name, DownloadModel dm) {
         var path = Path.of(dm.getFilePath()).getParent().toString();
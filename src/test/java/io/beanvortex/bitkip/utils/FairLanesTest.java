@@ -0,0 +1,70 @@
+package io.beanvortex.bitkip.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FairLanesTest {
+
+    @Test
+    void waiter_THAT_FITS_IS_SERVED_BEFORE_ONE_THAT_DOES_NOT() throws Exception {
+        // one permit for each key
+        var lanes = new FairLanes<String>((key, active, activeOfKey) -> activeOfKey < 1);
+        var first = lanes.acquire("a", 1, () -> false, null);
+        var blocked = CompletableFuture.supplyAsync(() -> {
+            try {
+                return lanes.acquire("a", 2, () -> false, null);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        while (lanes.getWaiting() == 0)
+            Thread.sleep(10);
+        // a waiter of another key does not wait behind the blocked one
+        var other = lanes.acquire("b", 2, () -> false, null);
+        assertNotNull(other);
+        assertFalse(blocked.isDone());
+        first.release();
+        blocked.get(2, TimeUnit.SECONDS).release();
+        other.release();
+        other.release();
+        assertEquals(0, lanes.getActive());
+        assertEquals(0, lanes.getWaiting());
+    }
+
+    @Test
+    void waiting_VIRTUAL_THREADS_DO_NOT_BLOCK_RELEASE() throws Exception {
+        var lanes = new FairLanes<Integer>((key, active, activeOfKey) -> active < 1);
+        var first = lanes.acquire(0, 0, () -> false, null);
+        // more waiters than carriers the virtual thread scheduler may add
+        var waiters = 300;
+        var served = new CountDownLatch(waiters);
+        var stop = new AtomicBoolean();
+        try {
+            for (int i = 0; i < waiters; i++) {
+                var lane = i % 4;
+                Thread.ofVirtual().start(() -> {
+                    try {
+                        var grant = lanes.acquire(lane, lane, stop::get, null);
+                        if (grant != null) {
+                            grant.release();
+                            served.countDown();
+                        }
+                    } catch (InterruptedException ignore) {
+                    }
+                });
+            }
+            Thread.sleep(300);
+            Thread.ofVirtual().start(first::release);
+            assertTrue(served.await(10, TimeUnit.SECONDS));
+        } finally {
+            stop.set(true);
+        }
+        assertEquals(0, lanes.getActive());
+    }
+}
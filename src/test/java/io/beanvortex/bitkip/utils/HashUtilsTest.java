@@ -0,0 +1,68 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.models.DownloadModel;
+import io.beanvortex.bitkip.models.HashAlgorithm;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashUtilsTest {
+
+    private static final String HELLO_SHA_256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @Test
+    void normalize_DETECTS_ALGORITHM() {
+        assertEquals("SHA-256:" + HELLO_SHA_256, HashUtils.normalize(HELLO_SHA_256.toUpperCase()));
+        assertEquals("MD5:5d41402abc4b2a76b9719d911017c592", HashUtils.normalize("md5:5d41402abc4b2a76b9719d911017c592"));
+        assertNull(HashUtils.normalize(" "));
+        assertThrows(IllegalArgumentException.class, () -> HashUtils.normalize("sha256:abc"));
+    }
+
+    @Test
+    void fromDigestHeaders_PREFERS_SHA_256() {
+        var headers = Map.of("Digest", List.of("MD5=XUFAKrxLKna5cZ2REBfFkg==,SHA-256=LPJNul+wow4m6DsqxbninhsWHlwfp0JecwQzYpOLmCQ="));
+        assertEquals("SHA-256:" + HELLO_SHA_256, HashUtils.fromDigestHeaders(headers));
+        var repr = Map.of("Repr-Digest", List.of("sha-256=:LPJNul+wow4m6DsqxbninhsWHlwfp0JecwQzYpOLmCQ=:"));
+        assertEquals("SHA-256:" + HELLO_SHA_256, HashUtils.fromDigestHeaders(repr));
+    }
+
+    @Test
+    void fromETag_ONLY_ACCEPTS_MD5() {
+        assertEquals("MD5:5d41402abc4b2a76b9719d911017c592", HashUtils.fromETag("\"5d41402abc4b2a76b9719d911017c592\""));
+        assertNull(HashUtils.fromETag("\"5d41402abc4b2a76b9719d911017c592-3\""));
+        assertNull(HashUtils.fromETag("W/\"5d41402abc4b2a76b9719d911017c592\""));
+    }
+
+    @Test
+    void streamingDigest_HASHES_OUT_OF_ORDER_BYTES() throws Exception {
+        var bytes = "hello".getBytes(StandardCharsets.UTF_8);
+        var digest = new StreamingDigest(HashAlgorithm.SHA_256);
+        // written ahead of the cursor, read back later
+        digest.offer(2, ByteBuffer.wrap(bytes, 2, 3));
+        digest.offer(0, ByteBuffer.wrap(bytes, 0, 2));
+        digest.catchUp(() -> bytes.length, (buffer, position) -> {
+            var length = Math.min(buffer.remaining(), bytes.length - (int) position);
+            buffer.put(bytes, (int) position, length);
+            return length;
+        });
+        assertEquals("SHA-256:" + HELLO_SHA_256, digest.getValue());
+    }
+
+    @Test
+    void mismatched_HASH_BLOCKS_COMPLETION() {
+        var dm = new DownloadModel();
+        assertFalse(HashUtils.isMismatched(dm));
+        dm.setHash("SHA-256:" + HELLO_SHA_256);
+        // nothing to compare with
+        assertFalse(HashUtils.isMismatched(dm));
+        dm.setExpectedHash("SHA-256:" + HELLO_SHA_256.toUpperCase());
+        assertFalse(HashUtils.isMismatched(dm));
+        dm.setExpectedHash("SHA-256:" + "0".repeat(64));
+        assertTrue(HashUtils.isMismatched(dm));
+    }
+}
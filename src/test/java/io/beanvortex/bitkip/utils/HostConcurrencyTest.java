@@ -0,0 +1,37 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.config.AppConfigs;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HostConcurrencyTest {
+
+    @AfterEach
+    void reset() {
+        HostConcurrency.reset();
+        AppConfigs.maxConnectionsPerHost = AppConfigs.defaultMaxConnectionsPerHost;
+    }
+
+    @Test
+    void limit_INCREASES_ADDITIVELY_AND_HALVES() {
+        assertEquals(-1, HostConcurrency.learnedLimit("https://a.com/file"));
+        HostConcurrency.onHealthy("https://a.com/file");
+        HostConcurrency.onHealthy("https://a.com/other");
+        assertEquals(10, HostConcurrency.learnedLimit("https://a.com/file"));
+        HostConcurrency.onCongested("https://a.com/file");
+        // failures that come together halve once
+        HostConcurrency.onCongested("https://a.com/file");
+        assertEquals(5, HostConcurrency.limitOf("a.com"));
+        assertEquals(-1, HostConcurrency.learnedLimit("https://b.com/file"));
+    }
+
+    @Test
+    void limit_STAYS_UNDER_HOST_CAP() {
+        AppConfigs.maxConnectionsPerHost = 9;
+        for (int i = 0; i < 5; i++)
+            HostConcurrency.onHealthy("https://a.com/file");
+        assertEquals(9, HostConcurrency.learnedLimit("https://a.com/file"));
+    }
+}
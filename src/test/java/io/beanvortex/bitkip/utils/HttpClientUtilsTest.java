@@ -0,0 +1,59 @@
+package io.beanvortex.bitkip.utils;
+
+import com.sun.net.httpserver.HttpServer;
+import io.beanvortex.bitkip.config.AppConfigs;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpClientUtilsTest {
+
+    @AfterEach
+    void restoreTimeouts() {
+        AppConfigs.readTimeout = AppConfigs.defaultReadTimeout;
+        AppConfigs.connectionTimeout = AppConfigs.defaultConnectionTimeout;
+    }
+
+    @Test
+    void stalled_BODY_TIMES_OUT() throws Exception {
+        AppConfigs.readTimeout = 500;
+        var stop = new CountDownLatch(1);
+        var server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/file", exchange -> {
+            exchange.getResponseHeaders().add("Content-Range", "bytes 0-99/100");
+            exchange.sendResponseHeaders(206, 100);
+            // a few bytes, then the server stalls without closing
+            exchange.getResponseBody().write(new byte[10]);
+            exchange.getResponseBody().flush();
+            try {
+                stop.await();
+            } catch (InterruptedException ignore) {
+            }
+            exchange.close();
+        });
+        server.start();
+        try (var in = HttpClientUtils.openRange("http://localhost:" + server.getAddress().getPort() + "/file", 0, 99)) {
+            assertEquals(10, in.readNBytes(10).length);
+            var started = System.currentTimeMillis();
+            assertThrows(SocketTimeoutException.class, in::read);
+            assertTrue(System.currentTimeMillis() - started < 5000);
+        } finally {
+            stop.countDown();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void replaced_CLIENT_IS_SHUT_DOWN() throws Exception {
+        var old = HttpClientUtils.getClient();
+        AppConfigs.connectionTimeout = AppConfigs.connectionTimeout + 1;
+        assertNotSame(old, HttpClientUtils.getClient());
+        assertTrue(old.awaitTermination(Duration.ofSeconds(5)));
+    }
+}
@@ -2,10 +2,17 @@ package io.beanvortex.bitkip.utils;
 
 
 import io.beanvortex.bitkip.config.AppConfigs;
+import io.beanvortex.bitkip.models.DownloadModel;
 import org.junit.jupiter.api.Test;
 import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class IOUtilsTest {
 
@@ -51,4 +58,33 @@ class IOUtilsTest {
         assert !newFolder.exists();
         assert !newFolderWithIn.exists();
     }
-}
\ No newline at end of file
+
+    @Test
+    void mergeFiles_PUTS_EACH_PART_AT_ITS_OFFSET() throws IOException {
+        AppConfigs.log = LoggerFactory.getLogger("BitKip");
+        var folder = Files.createTempDirectory("merge");
+        var temp = Files.createDirectory(folder.resolve(".temp"));
+        var parts = new ArrayList<Path>();
+        var expected = new byte[0];
+        for (int i = 0; i < 5; i++) {
+            // last part is larger, like the last chunk of a download
+            var bytes = new byte[i == 4 ? 150_000 : 100_000];
+            Arrays.fill(bytes, (byte) (i + 1));
+            var part = temp.resolve("file#" + i);
+            Files.write(part, bytes);
+            parts.add(part);
+            var joined = Arrays.copyOf(expected, expected.length + bytes.length);
+            System.arraycopy(bytes, 0, joined, expected.length, bytes.length);
+            expected = joined;
+        }
+        var dm = new DownloadModel();
+        dm.setName("file");
+        dm.setSize(expected.length);
+
+        assertTrue(IOUtils.mergeFiles(dm, parts.size(), parts));
+        assertArrayEquals(expected, Files.readAllBytes(folder.resolve("file")));
+        for (int i = 1; i < parts.size(); i++)
+            assertFalse(Files.exists(parts.get(i)));
+        IOUtils.deleteFolderWithContent(folder + File.separator);
+    }
+}
@@ -0,0 +1,64 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.models.DownloadModel;
+import io.beanvortex.bitkip.models.QueuePolicy;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PendingDownloadsTest {
+
+    private static DownloadModel download(int id, String url) {
+        var dm = new DownloadModel();
+        dm.setId(id);
+        dm.setUri(url);
+        return dm;
+    }
+
+    private static List<Integer> drain(PendingDownloads pending) {
+        var ids = new ArrayList<Integer>();
+        DownloadModel dm;
+        while ((dm = pending.poll()) != null)
+            ids.add(dm.getId());
+        return ids;
+    }
+
+    @Test
+    void shortest_FIRST_AND_UNKNOWN_SIZES_LAST() {
+        var pending = PendingDownloads.of(QueuePolicy.SHORTEST_FIRST);
+        var unknown = download(1, "https://a.com/1");
+        var big = download(2, "https://a.com/2");
+        big.setSize(1000);
+        var partlyDone = download(3, "https://a.com/3");
+        partlyDone.setSize(2000);
+        partlyDone.setDownloaded(1900);
+        List.of(unknown, big, partlyDone).forEach(pending::add);
+        assertEquals(List.of(3, 2, 1), drain(pending));
+    }
+
+    @Test
+    void hosts_TAKE_TURNS() {
+        var pending = PendingDownloads.of(QueuePolicy.HOST_FAIR_SHARE);
+        List.of(download(1, "https://a.com/1"), download(2, "https://a.com/2"),
+                download(3, "https://a.com/3"), download(4, "https://b.com/4")).forEach(pending::add);
+        assertEquals(List.of(1, 4, 2, 3), drain(pending));
+    }
+
+    @Test
+    void deadline_ORDER_KEEPS_ADDED_ORDER_ON_TIES() {
+        var pending = PendingDownloads.of(QueuePolicy.DEADLINE);
+        var noDeadline = download(1, "https://a.com/1");
+        var later = download(2, "https://a.com/2");
+        later.setDeadline(LocalDate.of(2030, 1, 2));
+        var sooner = download(3, "https://a.com/3");
+        sooner.setDeadline(LocalDate.of(2030, 1, 1));
+        var alsoSooner = download(4, "https://a.com/4");
+        alsoSooner.setDeadline(LocalDate.of(2030, 1, 1));
+        List.of(noDeadline, later, sooner, alsoSooner).forEach(pending::add);
+        assertEquals(List.of(3, 4, 2, 1), drain(pending));
+    }
+}
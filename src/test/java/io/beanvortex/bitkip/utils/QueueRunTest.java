@@ -0,0 +1,95 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.models.DownloadModel;
+import io.beanvortex.bitkip.models.DownloadStatus;
+import io.beanvortex.bitkip.models.QueueModel;
+import io.beanvortex.bitkip.models.QueuePolicy;
+import io.beanvortex.bitkip.models.StartedQueue;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueueRunTest {
+
+    private static DownloadModel download(int id) {
+        var dm = new DownloadModel();
+        dm.setId(id);
+        dm.setDownloadStatus(DownloadStatus.Paused);
+        return dm;
+    }
+
+    private static StartedQueue queue(int simultaneously) {
+        var qm = new QueueModel("queue", true);
+        qm.setSimultaneouslyDownload(simultaneously);
+        return new StartedQueue(qm);
+    }
+
+    @Test
+    void next_DOWNLOAD_STARTS_WHEN_A_SLOT_FREES() {
+        var started = new ArrayList<DownloadModel>();
+        var running = new HashSet<DownloadModel>();
+        var done = new AtomicInteger();
+        var downloads = List.of(download(1), download(2), download(3));
+        var run = new QueueRun(queue(2), downloads, dm -> {
+            started.add(dm);
+            running.add(dm);
+        }, dm -> fail(), running::contains, done::incrementAndGet);
+        run.dispatch();
+        assertEquals(List.of(downloads.get(0), downloads.get(1)), started);
+
+        running.remove(downloads.get(0));
+        run.onFinished(downloads.get(0));
+        assertEquals(3, started.size());
+        assertEquals(0, done.get());
+
+        running.clear();
+        run.onFinished(downloads.get(1));
+        run.onFinished(downloads.get(2));
+        assertEquals(1, done.get());
+        assertTrue(run.isStopped());
+    }
+
+    @Test
+    void failed_START_FREES_ITS_SLOT_AND_COMPLETED_ARE_SKIPPED() {
+        var started = new ArrayList<DownloadModel>();
+        var done = new AtomicInteger();
+        var completed = download(2);
+        completed.setDownloadStatus(DownloadStatus.Completed);
+        var run = new QueueRun(queue(1), List.of(download(1), completed, download(3)),
+                started::add, dm -> fail(), dm -> false, done::incrementAndGet);
+        run.dispatch();
+        assertEquals(2, started.size());
+        assertEquals(3, started.get(1).getId());
+        assertEquals(1, done.get());
+    }
+
+    @Test
+    void higher_PRIORITY_PREEMPTS_LOWEST_RUNNING() {
+        var started = new ArrayList<DownloadModel>();
+        var paused = new ArrayList<DownloadModel>();
+        var running = new HashSet<DownloadModel>();
+        var startedQueue = queue(1);
+        startedQueue.queue().setPolicy(QueuePolicy.PRIORITY);
+        var low = download(1);
+        var run = new QueueRun(startedQueue, List.of(low), dm -> {
+            started.add(dm);
+            running.add(dm);
+        }, paused::add, running::contains, () -> {
+        });
+        run.dispatch();
+        var high = download(2);
+        high.setPriority(5);
+        run.add(high);
+        run.dispatch();
+        assertEquals(List.of(low), paused);
+
+        running.remove(low);
+        run.onFinished(low);
+        assertEquals(List.of(low, high), started);
+    }
+}
@@ -0,0 +1,44 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.models.DownloadModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistryTest {
+
+    private static DownloadModel download(int id) {
+        var dm = new DownloadModel();
+        dm.setId(id);
+        return dm;
+    }
+
+    @Test
+    void values_ARE_FOUND_BY_KEY_OR_EQUAL_INSTANCE() {
+        var registry = new Registry<Integer, DownloadModel>(DownloadModel::getId);
+        var registered = download(1);
+        assertTrue(registry.add(registered));
+        assertFalse(registry.add(download(1)));
+        assertSame(registered, registry.get(1));
+        assertSame(registered, registry.find(download(1)));
+        assertNull(registry.find(download(2)));
+        assertTrue(registry.remove(download(1)));
+        assertTrue(registry.isEmpty());
+    }
+
+    @Test
+    void changes_ARE_PUBLISHED() {
+        var registry = new Registry<Integer, DownloadModel>(DownloadModel::getId);
+        var changes = new ArrayList<Registry.Change<DownloadModel>>();
+        registry.addListener(changes::add);
+        registry.add(download(1));
+        registry.add(download(1));
+        registry.remove(download(2));
+        registry.clear();
+        assertEquals(2, changes.size());
+        assertEquals(Registry.ChangeType.ADDED, changes.get(0).type());
+        assertEquals(Registry.ChangeType.REMOVED, changes.get(1).type());
+    }
+}
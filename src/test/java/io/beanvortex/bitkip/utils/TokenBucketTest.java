@@ -0,0 +1,39 @@
+package io.beanvortex.bitkip.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long MS = 1_000_000;
+
+    @Test
+    void reserve_WAITS_FOR_DEBT() {
+        var bucket = new TokenBucket(1_000_000);
+        var now = System.nanoTime();
+        assertEquals(0, bucket.reserve(100_000, now));
+        var wait = bucket.reserve(100_000, now);
+        assertEquals(100 * MS, wait, MS);
+        assertEquals(0, bucket.reserve(100_000, now + 200 * MS));
+    }
+
+    @Test
+    void unlimited_NEVER_WAITS() {
+        var bucket = new TokenBucket(0);
+        assertTrue(bucket.isUnlimited());
+        assertEquals(0, bucket.reserve(Long.MAX_VALUE / 2));
+    }
+
+    @Test
+    void setRate_APPLIES_TO_NEXT_RESERVE() {
+        var bucket = new TokenBucket(1_000_000);
+        var now = System.nanoTime();
+        bucket.reserve(100_000, now);
+        bucket.setRate(0);
+        assertEquals(0, bucket.reserve(1_000_000, now));
+        bucket.setRate(100_000);
+        assertEquals(16_384, bucket.getCapacity());
+        assertTrue(bucket.reserve(100_000, System.nanoTime()) > 500 * MS);
+    }
+}
@@ -0,0 +1,119 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.models.DownloadMetadata;
+import io.beanvortex.bitkip.models.UrlProbe;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlProbeCacheTest {
+
+    private static class MovableClock extends Clock {
+        private Instant instant = Instant.EPOCH;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+
+    private static UrlProbe probeOf(String uri) {
+        return new UrlProbe(new DownloadMetadata(100, 0, null, true, uri, null), "file");
+    }
+
+    @Test
+    void url_IS_PROBED_AGAIN_AFTER_TTL_OR_INVALIDATION() throws Exception {
+        var probes = new AtomicInteger();
+        var clock = new MovableClock();
+        var cache = new UrlProbeCache(2, Duration.ofMinutes(5), clock, uri -> {
+            probes.incrementAndGet();
+            return probeOf(uri);
+        });
+
+        cache.get("a");
+        cache.get("a");
+        assertEquals(1, probes.get());
+
+        clock.instant = clock.instant.plus(Duration.ofMinutes(6));
+        cache.get("a");
+        assertEquals(2, probes.get());
+
+        cache.invalidate("a");
+        cache.get("a");
+        assertEquals(3, probes.get());
+    }
+
+    @Test
+    void least_RECENTLY_USED_URL_IS_DROPPED() throws Exception {
+        var probes = new AtomicInteger();
+        var cache = new UrlProbeCache(2, Duration.ofMinutes(5), Clock.systemUTC(), uri -> {
+            probes.incrementAndGet();
+            return probeOf(uri);
+        });
+        cache.get("a");
+        cache.get("b");
+        cache.get("a");
+        cache.get("c");
+        assertEquals(2, cache.size());
+        cache.get("a");
+        assertEquals(3, probes.get());
+        cache.get("b");
+        assertEquals(4, probes.get());
+    }
+
+    @Test
+    void concurrent_CALLERS_SHARE_ONE_PROBE_AND_FAILURE_IS_NOT_KEPT() throws Exception {
+        var probes = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        var cache = new UrlProbeCache(8, Duration.ofMinutes(5), Clock.systemUTC(), uri -> {
+            probes.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            if (uri.equals("bad"))
+                throw new IOException("refused");
+            return probeOf(uri);
+        });
+        var first = CompletableFuture.supplyAsync(() -> get(cache, "a"));
+        var second = CompletableFuture.supplyAsync(() -> get(cache, "a"));
+        Thread.sleep(200);
+        release.countDown();
+        assertSame(first.get(2, TimeUnit.SECONDS), second.get(2, TimeUnit.SECONDS));
+        assertEquals(1, probes.get());
+
+        assertThrows(IOException.class, () -> cache.get("bad"));
+        assertThrows(IOException.class, () -> cache.get("bad"));
+        assertEquals(3, probes.get());
+    }
+
+    private static UrlProbe get(UrlProbeCache cache, String uri) {
+        try {
+            return cache.get(uri);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
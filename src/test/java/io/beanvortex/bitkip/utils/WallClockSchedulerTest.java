@@ -0,0 +1,102 @@
+package io.beanvortex.bitkip.utils;
+
+import io.beanvortex.bitkip.config.AppConfigs;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.time.*;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WallClockSchedulerTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Berlin");
+
+    private static class MovableClock extends Clock {
+        private Instant instant;
+
+        MovableClock(LocalDateTime dateTime) {
+            instant = dateTime.atZone(ZONE).toInstant();
+        }
+
+        void moveTo(LocalDateTime dateTime) {
+            instant = dateTime.atZone(ZONE).toInstant();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZONE;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        AppConfigs.log = LoggerFactory.getLogger("BitKip");
+    }
+
+    @Test
+    void daily_TRIGGER_KEEPS_LOCAL_TIME_ACROSS_DAYLIGHT_SAVING() {
+        // clocks move forward on 2024-03-31 in Berlin
+        var clock = new MovableClock(LocalDateTime.of(2024, 3, 30, 12, 0));
+        var scheduler = new WallClockScheduler("test", clock, Runnable::run);
+        var fired = new AtomicInteger();
+        var trigger = scheduler.schedule(WallClockScheduler.Recurrence.onDays(LocalTime.of(9, 0), Set.of(DayOfWeek.values())),
+                Duration.ofSeconds(10), fired::incrementAndGet, null);
+        assertEquals(LocalDateTime.of(2024, 3, 31, 9, 0), trigger.getNext().toLocalDateTime());
+
+        clock.moveTo(LocalDateTime.of(2024, 3, 31, 9, 0, 5));
+        scheduler.fireDue();
+        assertEquals(1, fired.get());
+        assertEquals(LocalDateTime.of(2024, 4, 1, 9, 0), trigger.getNext().toLocalDateTime());
+    }
+
+    @Test
+    void late_TRIGGER_IS_MISSED_AND_MOVES_TO_NEXT_DAY() {
+        var clock = new MovableClock(LocalDateTime.of(2024, 5, 6, 8, 0));
+        var scheduler = new WallClockScheduler("test", clock, Runnable::run);
+        var fired = new AtomicInteger();
+        var missed = new AtomicInteger();
+        var trigger = scheduler.schedule(WallClockScheduler.Recurrence.onDays(LocalTime.of(9, 0),
+                        Set.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY)),
+                Duration.ofSeconds(10), fired::incrementAndGet, missed::incrementAndGet);
+
+        // resumed from suspend an hour after its time
+        clock.moveTo(LocalDateTime.of(2024, 5, 6, 10, 0));
+        scheduler.fireDue();
+        assertEquals(0, fired.get());
+        assertEquals(1, missed.get());
+        assertEquals(LocalDateTime.of(2024, 5, 8, 9, 0), trigger.getNext().toLocalDateTime());
+    }
+
+    @Test
+    void once_TRIGGER_FIRES_ONE_TIME() {
+        var clock = new MovableClock(LocalDateTime.of(2024, 5, 6, 8, 0));
+        var scheduler = new WallClockScheduler("test", clock, Runnable::run);
+        var fired = new AtomicInteger();
+        var trigger = scheduler.schedule(WallClockScheduler.Recurrence.once(LocalDateTime.of(2024, 5, 6, 8, 30)),
+                Duration.ofSeconds(10), fired::incrementAndGet, null);
+        var cancelled = scheduler.schedule(WallClockScheduler.Recurrence.once(LocalDateTime.of(2024, 5, 6, 8, 30)),
+                Duration.ofSeconds(10), fired::incrementAndGet, null);
+        cancelled.cancel();
+
+        clock.moveTo(LocalDateTime.of(2024, 5, 6, 8, 30));
+        scheduler.fireDue();
+        scheduler.fireDue();
+        assertEquals(1, fired.get());
+        assertTrue(trigger.isCancelled());
+        assertEquals(0, scheduler.size());
+    }
+}